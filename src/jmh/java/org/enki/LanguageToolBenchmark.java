@@ -0,0 +1,50 @@
+package org.enki;
+
+import org.languagetool.JLanguageTool;
+import org.languagetool.language.AmericanEnglish;
+import org.languagetool.rules.RuleMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A full grammar check of the demo text, and of the demo text repeated to the size of a chapter and of a short book.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class LanguageToolBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int copies;
+
+    private JLanguageTool languageTool;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        languageTool = new JLanguageTool(new AmericanEnglish());
+        text = (LanguageToolPool.warmUpText + "\n\n").repeat(copies);
+        languageTool.check(LanguageToolPool.warmUpText);
+    }
+
+    @Benchmark
+    public List<RuleMatch> check() throws IOException {
+        return languageTool.check(text);
+    }
+
+}
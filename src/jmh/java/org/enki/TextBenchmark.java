@@ -0,0 +1,54 @@
+package org.enki;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The whole-document passes over the text: the word count, the Twitter character count, and the digest that decides
+// whether a document whose edits were undone is back to what was saved.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextBenchmark {
+
+    @Param({"1", "8", "64", "512"})
+    public int copies;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = (LanguageToolPool.warmUpText + "\nSee https://github.com/mcculley/WordWhittler for more.\n\n")
+                .repeat(copies);
+    }
+
+    @Benchmark
+    public long wordCount() {
+        return App.wordCount(text);
+    }
+
+    @Benchmark
+    public int twitterCharacters() {
+        return App.getTwitterCharacters(text);
+    }
+
+    @Benchmark
+    public byte[] digest() {
+        return DirtyTracker.digest(text);
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.enki;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.PointerType;
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Word lookups as done for the word under the caret, and building the relation lists shown for it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordNetBenchmark {
+
+    // A common word with many senses, an inflected form, a compound and a word that is not in WordNet.
+    @Param({"run", "happiest", "ice cream", "wordwhittler"})
+    public String word;
+
+    private Dictionary dictionary;
+    private Lexicon lexicon;
+    private IndexWord indexWord;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JWNLException, IOException {
+        dictionary = Dictionary.getDefaultResourceInstance();
+        lexicon = Lexicon.openOrBuild(dictionary, DataFiles.cacheFile(Lexicon.fileName));
+        final List<IndexWord> words = App.lookupAsList(dictionary, word);
+        indexWord = words.isEmpty() ? null : words.get(0);
+    }
+
+    @Benchmark
+    public Map<?, IndexWord> lookup() {
+        return App.lookup(dictionary, word);
+    }
+
+    @Benchmark
+    public List<IndexWord> lookupAsList() {
+        return App.lookupAsList(dictionary, word);
+    }
+
+    @Benchmark
+    public List<IndexWord> lexiconLookupAsList() {
+        return lexicon.lookupAsList(word);
+    }
+
+    @Benchmark
+    public Object synonymsAsList() {
+        return indexWord == null ? null : WordNetUtilities.synonymsAsList(indexWord);
+    }
+
+    @Benchmark
+    public Object hypernymsAsList() {
+        return indexWord == null ? null : WordNetUtilities.targetsAsList(indexWord, PointerType.HYPERNYM);
+    }
+
+    @Benchmark
+    public Object antonymsAsList() {
+        return indexWord == null ? null : WordNetUtilities.targetsAsList(indexWord, PointerType.ANTONYM);
+    }
+
+    // The same relation queries answered from the relation graph.
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(value = 1, jvmArgs = {"-Xmx2g"})
+    public static class Graph {
+
+        @Param({"run", "happy", "ice cream"})
+        public String word;
+
+        private RelationGraph graph;
+        private int indexWord;
+
+        @Setup(Level.Trial)
+        public void setUp() throws JWNLException {
+            final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
+            graph = RelationGraph.build(dictionary);
+            final IndexWord w = App.lookupAsList(dictionary, word).get(0);
+            indexWord = graph.indexWordId(w.getPOS(), w.getLemma());
+        }
+
+        @Benchmark
+        public int[] synonyms() {
+            return graph.synonyms(indexWord);
+        }
+
+        @Benchmark
+        public int[] hypernyms() {
+            return graph.related(indexWord, PointerType.HYPERNYM);
+        }
+
+        @Benchmark
+        public int[] hypernymsThreeHops() {
+            return graph.expand(indexWord, PointerType.HYPERNYM, 3);
+        }
+
+    }
+
+    // Scanning every synset for multi-word phrases takes seconds, so it is timed a few runs at a time.
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    @Fork(1)
+    public static class Phrases {
+
+        private Dictionary dictionary;
+
+        @Setup(Level.Trial)
+        public void setUp() throws JWNLException {
+            dictionary = Dictionary.getDefaultResourceInstance();
+        }
+
+        @Benchmark
+        public Map<String, Synset> phrasesToWords() {
+            return WordNetUtilities.phrasesToWords(dictionary);
+        }
+
+    }
+
+}
@@ -0,0 +1,357 @@
+package org.enki;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.PointerType;
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.data.Word;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// Serves grammar checks and word lookups over HTTP on the loopback interface so that other local programs can use
+// WordWhittler. Requests go through the same services as the editor: checks through an IncrementalChecker with the
+// wordy phrase matcher, and lookups through a WordCache backed by the lexicon.
+public class AnalysisServer {
+
+    public static final int defaultPort = 7414;
+    private static final int maxHops = 10;
+    // The JSON key of each relation in /lookup. The WordNet labels do not all pluralize by adding an s.
+    private static final Map<PointerType, String> relationKeys = Map.of(
+            PointerType.ANTONYM, "antonyms",
+            PointerType.HYPERNYM, "hypernyms",
+            PointerType.CATEGORY, "categories",
+            PointerType.CATEGORY_MEMBER, "categoryMembers"
+    );
+
+    private final HttpServer server;
+    // Read from every request thread. The bundled dictionary keeps the WordNet files in memory that is never written
+    // after loading and its caches are concurrent maps, so concurrent reads are safe. Walks over all of WordNet, like
+    // building the relation graph, use a dictionary of their own.
+    private final Dictionary dictionary;
+    private final LanguageToolPool languageTools;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    // The lexicon, the phrase matcher and the relation graph are loaded in the background when the server is created,
+    // in that order, on a thread of their own rather than the common pool that parallel streams share.
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "analysis server startup");
+        t.setDaemon(true);
+        return t;
+    });
+    // Until the lexicon is ready, or if it could not be opened, lookups go to the dictionary.
+    private volatile Lexicon lexicon;
+    private final WordCache wordCache = new WordCache(this::lookupWords, 1000);
+    // Completes with null if the phrases could not be loaded, and /check then reports LanguageTool matches alone.
+    private final CompletableFuture<PhraseMatcher> phraseMatcher;
+    // Until it is ready, or if building it failed, /related answers 503.
+    private final CompletableFuture<RelationGraph> relationGraph;
+
+    public AnalysisServer(final int port, @NotNull final Dictionary dictionary,
+                          @NotNull final LanguageToolPool languageTools) throws IOException {
+        this.dictionary = Objects.requireNonNull(dictionary);
+        this.languageTools = Objects.requireNonNull(languageTools);
+        backgroundExecutor.execute(() -> {
+            try {
+                lexicon = Lexicon.openOrBuild(dictionary, DataFiles.cacheFile(Lexicon.fileName));
+            } catch (final IOException | RuntimeException e) {
+                System.err.println("lexicon unavailable, using the dictionary directly: " + e);
+            }
+        });
+        phraseMatcher = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new PhraseMatcher(WordNetUtilities.loadOrComputePhrasesToWords(dictionary,
+                        DataFiles.cacheFile(WordNetUtilities.phrasesFileName)));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, backgroundExecutor).exceptionally(e -> {
+            System.err.println("wordy phrase detection unavailable: " + e);
+            return null;
+        });
+        relationGraph = CompletableFuture.supplyAsync(() -> {
+            try {
+                return RelationGraph.build(Dictionary.getDefaultResourceInstance());
+            } catch (final JWNLException e) {
+                throw new RuntimeException(e);
+            }
+        }, backgroundExecutor);
+        relationGraph.exceptionally(e -> {
+            System.err.println("relation graph unavailable: " + e);
+            return null;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(newRequestExecutor());
+        server.createContext("/check", timed("/check", this::check));
+        server.createContext("/lookup", timed("/lookup", this::lookup));
+        server.createContext("/related", timed("/related", this::related));
+        server.createContext("/stats", timed("/stats", this::stats));
+    }
+
+    // Uses a virtual thread per request where the runtime has them and an ordinary thread pool where it does not.
+    private static @NotNull
+    ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private interface Handler {
+
+        void handle(@NotNull HttpExchange exchange) throws IOException;
+
+    }
+
+    private @NotNull
+    HttpHandler timed(@NotNull final String name, @NotNull final Handler handler) {
+        final LatencyHistogram latency = latencies.computeIfAbsent(name, x -> Metrics.histogram("server " + x));
+        return exchange -> {
+            final long start = System.nanoTime();
+            try {
+                handler.handle(exchange);
+            } catch (final IOException | RuntimeException e) {
+                System.err.println(name + ": " + e);
+                // Once the headers have gone out, as when the client went away while the body was written, there is no
+                // status left to send.
+                if (exchange.getResponseCode() == -1) {
+                    respond(exchange, 500, "{\"error\":" + Json.quote(String.valueOf(e.getMessage())) + "}");
+                }
+            } finally {
+                latency.recordSince(start);
+                exchange.close();
+            }
+        };
+    }
+
+    private static void respond(@NotNull final HttpExchange exchange, final int status, @NotNull final String json)
+            throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static @NotNull
+    Map<String, String> query(@NotNull final HttpExchange exchange) {
+        final Map<String, String> m = new HashMap<>();
+        final String q = exchange.getRequestURI().getRawQuery();
+        if (q == null) {
+            return m;
+        }
+
+        for (final String pair : q.split("&")) {
+            final int i = pair.indexOf('=');
+            if (i > 0) {
+                m.put(URLDecoder.decode(pair.substring(0, i), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(i + 1), StandardCharsets.UTF_8));
+            }
+        }
+
+        return m;
+    }
+
+    private @NotNull
+    List<IndexWord> lookupWords(@NotNull final String s) {
+        final Lexicon l = lexicon;
+        return l == null ? App.lookupAsList(dictionary, s) : l.lookupAsList(s);
+    }
+
+    // POST the text to check as the request body.
+    private void check(@NotNull final HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            respond(exchange, 405, "{\"error\":\"POST the text to check\"}");
+            return;
+        }
+
+        final String text = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        // A request waits for the phrases rather than answering without them. Each request gets a checker of its own,
+        // as a shared one would check one request at a time.
+        final PhraseMatcher phrases = phraseMatcher.join();
+        final List<RuleMatch> matches = new IncrementalChecker(languageTools, () -> phrases).check(text);
+        final StringBuilder b = new StringBuilder("{\"matches\":[");
+        boolean first = true;
+        for (final RuleMatch m : matches) {
+            if (!first) {
+                b.append(',');
+            }
+
+            b.append('{');
+            Json.appendMatchFields(b, m);
+            b.append('}');
+            first = false;
+        }
+
+        respond(exchange, 200, b.append("]}").toString());
+    }
+
+    private static @NotNull
+    List<String> lemmas(@NotNull final Collection<Word> words) {
+        return words.stream().map(Word::getLemma).distinct().collect(Collectors.toList());
+    }
+
+    // GET /lookup?word=... returns each part of speech the word is found under, with its senses and relations.
+    private void lookup(@NotNull final HttpExchange exchange) throws IOException {
+        final String word = query(exchange).get("word");
+        if (word == null || word.isBlank()) {
+            respond(exchange, 400, "{\"error\":\"missing word parameter\"}");
+            return;
+        }
+
+        final StringBuilder b = new StringBuilder("{\"word\":");
+        Json.appendQuoted(b, word);
+        b.append(",\"entries\":[");
+        boolean first = true;
+        for (final IndexWord w : wordCache.lookup(word)) {
+            if (!first) {
+                b.append(',');
+            }
+
+            b.append("{\"lemma\":");
+            Json.appendQuoted(b, w.getLemma());
+            b.append(",\"pos\":");
+            Json.appendQuoted(b, w.getPOS().getLabel());
+            b.append(",\"senses\":");
+            Json.appendQuoted(b, w.getSenses().stream().map(Synset::getGloss).collect(Collectors.toList()));
+            b.append(",\"synonyms\":");
+            Json.appendQuoted(b, lemmas(wordCache.relations(new WordCache.Group(w, null))));
+            for (final PointerType type : WordNetUtilities.relationTypes) {
+                b.append(',');
+                Json.appendQuoted(b, relationKeys.get(type));
+                b.append(':');
+                Json.appendQuoted(b, lemmas(wordCache.relations(new WordCache.Group(w, type))));
+            }
+
+            b.append('}');
+            first = false;
+        }
+
+        respond(exchange, 200, b.append("]}").toString());
+    }
+
+    // GET /related?word=...&type=hypernym&hops=2 returns the lemmas up to the given number of pointers of the type away
+    // from the word, answered from the relation graph.
+    private void related(@NotNull final HttpExchange exchange) throws IOException {
+        final Map<String, String> q = query(exchange);
+        final String word = q.get("word");
+        if (word == null || word.isBlank()) {
+            respond(exchange, 400, "{\"error\":\"missing word parameter\"}");
+            return;
+        }
+
+        final PointerType type;
+        final int hops;
+        try {
+            type = PointerType.valueOf(q.getOrDefault("type", "hypernym").toUpperCase().replace(' ', '_'));
+            hops = Integer.parseInt(q.getOrDefault("hops", "1"));
+        } catch (final IllegalArgumentException e) {
+            respond(exchange, 400, "{\"error\":" + Json.quote(String.valueOf(e.getMessage())) + "}");
+            return;
+        }
+
+        if (hops < 1 || hops > maxHops) {
+            respond(exchange, 400, "{\"error\":\"hops must be from 1 to " + maxHops + "\"}");
+            return;
+        }
+
+        if (relationGraph.isCompletedExceptionally()) {
+            respond(exchange, 503, "{\"error\":\"the relation graph could not be built\"}");
+            return;
+        }
+
+        final RelationGraph graph = relationGraph.getNow(null);
+        if (graph == null) {
+            respond(exchange, 503, "{\"error\":\"the relation graph is not ready\"}");
+            return;
+        }
+
+        final Set<String> related = new TreeSet<>();
+        wordCache.lookup(word).stream()
+                .mapToInt(w -> graph.indexWordId(w.getPOS(), w.getLemma()))
+                .filter(indexWord -> indexWord != -1)
+                .forEach(indexWord -> related.addAll(graph.lemmas(graph.expand(indexWord, type, hops))));
+
+        final StringBuilder b = new StringBuilder("{\"word\":");
+        Json.appendQuoted(b, word);
+        b.append(",\"type\":");
+        Json.appendQuoted(b, type.name().toLowerCase());
+        b.append(",\"hops\":").append(hops);
+        b.append(",\"related\":");
+        Json.appendQuoted(b, related);
+        respond(exchange, 200, b.append('}').toString());
+    }
+
+    private void stats(@NotNull final HttpExchange exchange) throws IOException {
+        final StringBuilder b = new StringBuilder("{");
+        boolean first = true;
+        for (final Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+            if (!first) {
+                b.append(',');
+            }
+
+            final LatencyHistogram.Summary s = e.getValue().summary();
+            Json.appendQuoted(b, e.getKey());
+            b.append(":{\"count\":").append(s.count());
+            b.append(",\"meanMillis\":").append(s.meanNanos() / 1e6);
+            b.append(",\"p50Millis\":").append(s.p50Nanos() / 1e6);
+            b.append(",\"p99Millis\":").append(s.p99Nanos() / 1e6);
+            b.append(",\"maxMillis\":").append(s.maxNanos() / 1e6);
+            b.append('}');
+            first = false;
+        }
+
+        respond(exchange, 200, b.append('}').toString());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // The port the server listens on, which is chosen by the system when the server was created with port 0.
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        backgroundExecutor.shutdownNow();
+    }
+
+    public static void main(@NotNull final String[] args) throws IOException, JWNLException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : defaultPort;
+        final LanguageToolPool languageTools = new LanguageToolPool(LanguageToolPool.defaultSize());
+        languageTools.warmUp();
+        final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
+        App.lookup(dictionary, "warm");
+        final AnalysisServer server = new AnalysisServer(port, dictionary, languageTools);
+        server.start();
+        Metrics.publish();
+        System.err.println("WordWhittler listening on http://localhost:" + server.port());
+    }
+
+}
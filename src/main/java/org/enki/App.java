@@ -2,23 +2,17 @@ package org.enki;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Range;
 import com.google.common.io.Resources;
 import com.vdurmont.semver4j.Semver;
 import net.sf.extjwnl.JWNLException;
 import net.sf.extjwnl.data.IndexWord;
 import net.sf.extjwnl.data.POS;
-import net.sf.extjwnl.data.PointerTarget;
 import net.sf.extjwnl.data.PointerType;
 import net.sf.extjwnl.data.Synset;
 import net.sf.extjwnl.data.Word;
 import net.sf.extjwnl.dictionary.Dictionary;
-import org.enki.swing.ListListModel;
-import org.enki.swing.TransformingListCellRenderer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.languagetool.JLanguageTool;
-import org.languagetool.language.AmericanEnglish;
 import org.languagetool.rules.RuleMatch;
 
 import javax.swing.*;
@@ -27,12 +21,14 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.HyperlinkEvent;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.event.UndoableEditListener;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
-import javax.swing.text.DefaultHighlighter;
 import javax.swing.text.Document;
-import javax.swing.text.Highlighter;
+import javax.swing.text.DocumentFilter;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.Utilities;
 import javax.swing.tree.DefaultTreeCellRenderer;
@@ -41,20 +37,28 @@ import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
 import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -63,11 +67,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
-import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -75,8 +82,37 @@ import java.util.stream.Stream;
 
 public class App {
 
-    private final JLanguageTool languageTool = new JLanguageTool(new AmericanEnglish());
-    private final Dictionary dictionary;
+    private final Startup startup = new Startup();
+    private final ExecutorService startupExecutor = Executors.newCachedThreadPool(r -> {
+        final Thread t = new Thread(r, "startup");
+        t.setDaemon(true);
+        return t;
+    });
+    private final LanguageToolPool languageToolPool = new LanguageToolPool(LanguageToolPool.defaultSize());
+    private final CompletableFuture<Void> languageToolReady;
+    // Read from the EDT, the lookup thread and the startup threads. The bundled dictionary keeps the WordNet files in
+    // memory that is never written after loading and its caches are concurrent maps, so concurrent reads are safe.
+    // Building the lexicon and the phrase file walks all of WordNet, and those use dictionaries of their own.
+    private final CompletableFuture<Dictionary> dictionary;
+    private final CompletableFuture<Void> phrasesReady;
+    private volatile Lexicon lexicon;
+    private volatile PhraseMatcher phraseMatcher;
+    private final WordCache wordCache = new WordCache(this::lookupWords, 1000);
+    private final ExecutorService lookupExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "word lookup");
+        t.setDaemon(true);
+        return t;
+    });
+    // A single thread, so that saves of the same file land in the order they were made.
+    private final ExecutorService fileExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "file I/O");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean windowShown;
+    private DiagnosticsFrame diagnosticsFrame;
+    // The document window last activated, which the EDT watchdog describes when it logs a stall.
+    private volatile DocumentFrame activeFrame;
 
     private record TableRow(String name, Supplier<String> valueSupplier) {
     }
@@ -98,6 +134,8 @@ public class App {
     }
 
     private static final Semver version = getVersion();
+    private static final LatencyHistogram lookupLatency = Metrics.histogram("word lookup");
+    private static final LatencyHistogram wordTreeLatency = Metrics.histogram("word tree");
 
     private static class TableRowModel extends AbstractTableModel {
 
@@ -134,31 +172,95 @@ public class App {
 
     }
 
+    // Nothing slow happens here. LanguageTool and WordNet are initialized concurrently in the background, and each
+    // feature of a DocumentFrame lights up when the component it needs is ready.
     public App() {
-        try {
-            dictionary = Dictionary.getDefaultResourceInstance();
-        } catch (final JWNLException e) {
-            throw new AssertionError(e);
+        languageToolReady = startup.phase("LanguageTool", languageToolPool.warmUp());
+        dictionary = startup.phase("WordNet", Dictionary::getDefaultResourceInstance, startupExecutor);
+        dictionary.thenAcceptAsync(d -> startup.phase("WordNet warm-up", () -> warmUp(d), startupExecutor),
+                startupExecutor);
+        dictionary.thenComposeAsync(d -> startup.phase("lexicon",
+                        () -> Lexicon.openOrBuild(d, DataFiles.cacheFile(Lexicon.fileName)), startupExecutor),
+                startupExecutor).whenComplete((l, e) -> {
+            if (e == null) {
+                lexicon = l;
+            } else {
+                System.err.println("lexicon unavailable, using the dictionary directly: " + e);
+            }
+        });
+        phrasesReady = dictionary.thenComposeAsync(d -> startup.phase("wordy phrases",
+                        () -> new PhraseMatcher(WordNetUtilities.loadOrComputePhrasesToWords(d,
+                                DataFiles.cacheFile(WordNetUtilities.phrasesFileName))), startupExecutor),
+                startupExecutor).thenAccept(m -> phraseMatcher = m);
+        phrasesReady.exceptionally(e -> {
+            System.err.println("wordy phrase detection unavailable: " + e);
+            return null;
+        });
+        CompletableFuture.allOf(languageToolReady, dictionary, phrasesReady)
+                .whenComplete((r, e) -> startup.mark("all components ready"));
+        startupExecutor.execute(Metrics::publish);
+        final long stallMillis = EdtWatchdog.configuredThresholdMillis();
+        if (stallMillis > 0) {
+            startupExecutor.execute(() -> {
+                try {
+                    new EdtWatchdog(stallMillis, this::stallContext, DataFiles.cacheFile(EdtWatchdog.logFileName))
+                            .start();
+                } catch (final IOException e) {
+                    System.err.println("EDT watchdog unavailable: " + e);
+                }
+            });
         }
     }
 
-    private static @NotNull
-    String getText(@NotNull final JTextComponent t) {
-        final Document doc = t.getDocument();
-        final int length = doc.getLength();
-        try {
-            return doc.getText(0, length);
-        } catch (final BadLocationException e) {
-            throw new AssertionError(e);
+    // Looks up every word of the warm-up text so that the dictionary files are paged in before the user needs them.
+    private static Void warmUp(@NotNull final Dictionary d) {
+        for (final String w : LanguageToolPool.warmUpText.split("[^\\p{L}']+")) {
+            if (!w.isEmpty()) {
+                lookup(d, w.toLowerCase());
+            }
         }
+
+        return null;
     }
 
-    private static boolean isURL(@NotNull final String s) {
-        // FIXME: Detect domain in accordance with Twitter rules.
-        return s.startsWith("http://") || s.startsWith("https://");
+    private boolean dictionaryAvailable() {
+        return dictionary.isDone() && !dictionary.isCompletedExceptionally();
     }
 
-    private static String message(@NotNull final RuleMatch match) {
+    private @NotNull
+    List<IndexWord> lookupWords(@NotNull final String s) {
+        final long start = System.nanoTime();
+        final Lexicon l = lexicon;
+        final List<IndexWord> words = l == null ? lookupAsList(dictionary.join(), s) : l.lookupAsList(s);
+        lookupLatency.recordSince(start);
+        return words;
+    }
+
+    // Until the dictionary is ready there is nothing to look up. The cache is bypassed so that no empty result sticks.
+    private @NotNull
+    List<IndexWord> cachedLookupWords(@NotNull final String s) {
+        return dictionaryAvailable() ? wordCache.lookup(s) : List.of();
+    }
+
+    // Called off the Event Dispatch Thread while it is stalled, so it only reads what is safe to read from there.
+    private @NotNull
+    String stallContext() {
+        final DocumentFrame frame = activeFrame;
+        if (frame == null) {
+            return "no document";
+        }
+
+        final File file = frame.file;
+        return (file == null ? "untitled" : file.getName()) + ", " + frame.document().getLength() + " characters";
+    }
+
+    private @NotNull
+    Map<String, CompletableFuture<?>> components() {
+        return ImmutableMap.of("grammar checking", languageToolReady, "word lookup", dictionary, "wordy phrases",
+                phrasesReady);
+    }
+
+    static String message(@NotNull final RuleMatch match) {
         return match.getMessage().replace("<suggestion>", "'").replaceAll("</suggestion>", "'");
     }
 
@@ -168,32 +270,47 @@ public class App {
         private final JTextComponent definitionArea = new JTextPane();
         private final JTree wordTree = new JTree();
         private final JTextPane contentArea = new ContentPane();
+        private final MatchHighlighter matchHighlighter = new MatchHighlighter(contentArea);
         private final JMenuItem saveMenuItem;
+        private final IncrementalChecker checker = new IncrementalChecker(languageToolPool, () -> phraseMatcher);
+        private final CheckScheduler checkScheduler;
 
-        private File file;
-        private String savedHash;
+        private volatile File file;
         private final JSplitPane sideSplitPane;
         private final JSplitPane bottomSplitPane;
+        private final JLabel statusLabel = new JLabel();
+        private final JTable infoTable = new JTable();
+        private final JTable wordTable = new JTable();
+        private DocumentText documentText = new DocumentText(contentArea.getDocument());
+        private DocumentStatistics statistics = new DocumentStatistics("");
+        private Charset charset = StandardCharsets.UTF_8;
+        private String activity;
+        private final DocumentListener documentListener;
+        private final UndoableEditListener undoableEditListener;
+        private final DocumentFilter documentFilter;
+        private final DirtyTracker dirtyTracker = new DirtyTracker();
+        private final UndoManager undoManager = new UndoManager();
+        private final Timer reconcileTimer = new Timer(500, e -> reconcile());
+        private final JMenuItem undoMenuItem = new JMenuItem("Undo", KeyEvent.VK_U);
+        private final JMenuItem redoMenuItem = new JMenuItem("Redo", KeyEvent.VK_R);
         private String selectedRegion;
         private List<IndexWord> selectedWords;
+        private List<IndexWordTreeNode> wordNodes = List.of();
+        // Read on the lookup thread to skip requests for a word that is no longer shown.
+        private volatile TreeModel wordTreeModel;
+        private MatchIndex matchIndex = MatchIndex.EMPTY;
 
         private class ContentPane extends JTextPane {
 
             public ContentPane() {
+                super(new PieceTableDocument());
                 setToolTipText("");
             }
 
             private @Nullable
             RuleMatch findError(final int position) {
-                final int numErrors = errorList.getModel().getSize();
-                for (int i = 0; i < numErrors; i++) {
-                    final RuleMatch m = errorList.getModel().getElementAt(i);
-                    if (position >= m.getFromPos() && position <= m.getToPos()) {
-                        return m;
-                    }
-                }
-
-                return null;
+                final int i = matchIndex.first(position);
+                return i == -1 ? null : matchIndex.get(i);
             }
 
             @Override
@@ -305,103 +422,144 @@ public class App {
 
         }
 
-        private class SynonymsNode implements TreeNode {
+        private class LoadingNode implements TreeNode {
 
-            private final IndexWordTreeNode word;
-            private final List<Word> synonyms;
+            private final TreeNode parent;
 
-            public SynonymsNode(@NotNull final IndexWordTreeNode word, @NotNull final List<Word> synonyms) {
-                this.word = Objects.requireNonNull(word);
-                this.synonyms = Objects.requireNonNull(synonyms);
+            public LoadingNode(@NotNull final TreeNode parent) {
+                this.parent = Objects.requireNonNull(parent);
             }
 
             @Override
             public TreeNode getChildAt(final int childIndex) {
-                return new WordTreeNode(synonyms.get(childIndex), this);
+                return null;
             }
 
             @Override
             public int getChildCount() {
-                return synonyms.size();
+                return 0;
             }
 
             @Override
             public TreeNode getParent() {
-                return word;
+                return parent;
             }
 
             @Override
             public int getIndex(final TreeNode node) {
-                return synonyms.indexOf(((WordTreeNode) node).word);
+                return -1;
             }
 
             @Override
             public boolean getAllowsChildren() {
-                return true;
+                return false;
             }
 
             @Override
             public boolean isLeaf() {
-                return false;
+                return true;
             }
 
             @Override
             public Enumeration<? extends TreeNode> children() {
-                return Collections.enumeration(
-                        synonyms.stream().map(x -> new WordTreeNode(x, this)).collect(Collectors.toList()));
+                return Collections.emptyEnumeration();
             }
 
             @Override
             public String toString() {
-                return "synonyms";
+                return "loading\u2026";
             }
 
-            @Override
-            public boolean equals(final Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-                final SynonymsNode that = (SynonymsNode) o;
-                return word.equals(that.word);
+        }
+
+        // A node whose children are computed on the lookup thread when it is first expanded.
+        private abstract class LazyNode<T> implements TreeNode {
+
+            protected final DefaultTreeModel model;
+            private final List<TreeNode> loading = List.of(new LoadingNode(this));
+            private List<TreeNode> children;
+            private boolean requested;
+            private Runnable whenLoaded;
+
+            protected LazyNode(@NotNull final DefaultTreeModel model) {
+                this.model = Objects.requireNonNull(model);
             }
 
-            @Override
-            public int hashCode() {
-                return Objects.hash(word);
+            protected abstract @Nullable
+            T cached();
+
+            // Called on the lookup thread.
+            protected abstract @NotNull
+            T compute();
+
+            protected abstract @NotNull
+            List<TreeNode> nodes(@NotNull T value);
+
+            protected @NotNull
+            List<TreeNode> currentChildren() {
+                if (children != null) {
+                    return children;
+                }
+
+                final T value = cached();
+                if (value != null) {
+                    children = nodes(value);
+                    return children;
+                }
+
+                if (!requested) {
+                    requested = true;
+                    CompletableFuture.supplyAsync(() -> wordTreeModel == model ? compute() : null, lookupExecutor)
+                            .thenAcceptAsync(this::loaded, SwingUtilities::invokeLater)
+                            .exceptionally(e -> {
+                                System.err.println(e);
+                                return null;
+                            });
+                }
+
+                return loading;
             }
 
-        }
+            private void loaded(@Nullable final T value) {
+                if (value == null || wordTree.getModel() != model) {
+                    return;
+                }
 
-        private class PointerTypeNode implements TreeNode {
+                final boolean expanded = wordTree.isExpanded(path(this));
+                children = nodes(value);
+                model.nodeStructureChanged(this);
+                if (expanded) {
+                    wordTree.expandPath(path(this));
+                }
 
-            private final IndexWordTreeNode word;
-            private final PointerType type;
-            private final List<Word> targets;
+                if (whenLoaded != null) {
+                    final Runnable action = whenLoaded;
+                    whenLoaded = null;
+                    action.run();
+                }
+            }
 
-            public PointerTypeNode(@NotNull final IndexWordTreeNode word, @NotNull final PointerType type,
-                                   @NotNull final List<Word> targets) {
-                this.word = Objects.requireNonNull(word);
-                this.type = Objects.requireNonNull(type);
-                this.targets = Objects.requireNonNull(targets);
+            protected void whenLoaded(@NotNull final Runnable action) {
+                if (currentChildren() == loading) {
+                    whenLoaded = action;
+                } else {
+                    action.run();
+                }
             }
 
             @Override
             public TreeNode getChildAt(final int childIndex) {
-                return new WordTreeNode(targets.get(childIndex), this);
+                return currentChildren().get(childIndex);
             }
 
             @Override
             public int getChildCount() {
-                return targets.size();
-            }
-
-            @Override
-            public TreeNode getParent() {
-                return word;
+                return currentChildren().size();
             }
 
             @Override
             public int getIndex(final TreeNode node) {
-                return targets.indexOf(((WordTreeNode) node).word);
+                return currentChildren().indexOf(node);
             }
 
             @Override
@@ -416,92 +574,115 @@ public class App {
 
             @Override
             public Enumeration<? extends TreeNode> children() {
-                return Collections.enumeration(
-                        targets.stream().map(x -> new WordTreeNode(x, this)).collect(Collectors.toList()));
+                return Collections.enumeration(currentChildren());
+            }
+
+        }
+
+        private class RelationNode extends LazyNode<List<Word>> {
+
+            private final IndexWordTreeNode word;
+            private final WordCache.Group group;
+
+            public RelationNode(@NotNull final IndexWordTreeNode word, @Nullable final PointerType type) {
+                super(word.model);
+                this.word = word;
+                this.group = new WordCache.Group(word.word, type);
+            }
+
+            @Override
+            protected @Nullable
+            List<Word> cached() {
+                return wordCache.cachedRelations(group);
+            }
+
+            @Override
+            protected @NotNull
+            List<Word> compute() {
+                return wordCache.relations(group);
+            }
+
+            @Override
+            protected @NotNull
+            List<TreeNode> nodes(@NotNull final List<Word> words) {
+                return words.stream().map(x -> new WordTreeNode(x, this)).collect(Collectors.toList());
+            }
+
+            @Override
+            public TreeNode getParent() {
+                return word;
             }
 
             @Override
             public String toString() {
-                return type.getLabel() + "s";
+                return group.type() == null ? "synonyms" : group.type().getLabel() + "s";
             }
 
             @Override
             public boolean equals(final Object o) {
                 if (this == o) return true;
                 if (o == null || getClass() != o.getClass()) return false;
-                final PointerTypeNode that = (PointerTypeNode) o;
-                return word.equals(that.word) && type == that.type;
+                final RelationNode that = (RelationNode) o;
+                return word.equals(that.word) && Objects.equals(group.type(), that.group.type());
             }
 
             @Override
             public int hashCode() {
-                return Objects.hash(word, type);
+                return Objects.hash(word, group.type());
             }
 
         }
 
-        private class IndexWordTreeNode implements TreeNode {
+        private class IndexWordTreeNode extends LazyNode<List<PointerType>> {
 
             private final IndexWord word;
-            private final List<TreeNode> children;
 
-            public IndexWordTreeNode(@NotNull final IndexWord word) {
+            public IndexWordTreeNode(@NotNull final IndexWord word, @NotNull final DefaultTreeModel model) {
+                super(model);
                 this.word = Objects.requireNonNull(word);
-                this.children = new ArrayList<>();
-
-                final List<Word> synonyms = synonymsAsList(word);
-                if (!synonyms.isEmpty()) {
-                    children.add(new SynonymsNode(this, synonyms));
-                }
-
-                final PointerType[] types = {
-                        PointerType.ANTONYM,
-                        PointerType.HYPERNYM,
-                        PointerType.CATEGORY,
-                        PointerType.CATEGORY_MEMBER
-                };
-
-                for (final PointerType type : types) {
-                    final List<Word> targets = targetsAsList(this.word, type);
-                    if (!targets.isEmpty()) {
-                        children.add(new PointerTypeNode(this, type, targets));
-                    }
-                }
             }
 
             @Override
-            public TreeNode getChildAt(final int childIndex) {
-                return children.get(childIndex);
+            protected @Nullable
+            List<PointerType> cached() {
+                return wordCache.cachedRelationTypes(word);
             }
 
             @Override
-            public int getChildCount() {
-                return children.size();
+            protected @NotNull
+            List<PointerType> compute() {
+                return wordCache.relationTypes(word);
             }
 
             @Override
-            public TreeNode getParent() {
-                return rootWordTreeNode;
-            }
+            protected @NotNull
+            List<TreeNode> nodes(@NotNull final List<PointerType> types) {
+                final List<TreeNode> l = new ArrayList<>();
+                l.add(new RelationNode(this, null));
+                for (final PointerType type : types) {
+                    l.add(new RelationNode(this, type));
+                }
 
-            @Override
-            public int getIndex(final TreeNode node) {
-                return children.indexOf(node);
+                return l;
             }
 
-            @Override
-            public boolean getAllowsChildren() {
-                return true;
-            }
+            private void showFirstRelation() {
+                final List<TreeNode> groups = currentChildren();
+                if (groups.isEmpty() || !(groups.get(0) instanceof RelationNode first)) {
+                    return;
+                }
 
-            @Override
-            public boolean isLeaf() {
-                return false;
+                wordTree.expandPath(path(first));
+                first.whenLoaded(() -> {
+                    if (wordTree.isSelectionEmpty() && first.getChildCount() > 0) {
+                        wordTree.setSelectionPath(path(first.getChildAt(0)));
+                    }
+                });
             }
 
             @Override
-            public Enumeration<? extends TreeNode> children() {
-                return Collections.enumeration(children);
+            public TreeNode getParent() {
+                return rootWordTreeNode;
             }
 
             @Override
@@ -528,16 +709,12 @@ public class App {
 
             @Override
             public TreeNode getChildAt(final int childIndex) {
-                return new IndexWordTreeNode(selectedWords.get(childIndex));
+                return wordNodes.get(childIndex);
             }
 
             @Override
             public int getChildCount() {
-                if (selectedWords == null) {
-                    return 0;
-                } else {
-                    return selectedWords.size();
-                }
+                return wordNodes.size();
             }
 
             @Override
@@ -547,7 +724,7 @@ public class App {
 
             @Override
             public int getIndex(final TreeNode node) {
-                return selectedWords.indexOf(((IndexWordTreeNode) node).word);
+                return wordNodes.indexOf(node);
             }
 
             @Override
@@ -562,8 +739,7 @@ public class App {
 
             @Override
             public Enumeration<? extends TreeNode> children() {
-                return Collections.enumeration(
-                        selectedWords.stream().map(IndexWordTreeNode::new).collect(Collectors.toList()));
+                return Collections.enumeration(wordNodes);
             }
 
             @Override
@@ -603,96 +779,172 @@ public class App {
         }
 
         private void setWordOfInterest(@NotNull final String s) {
+            final long start = System.nanoTime();
             selectedRegion = s;
-            selectedWords = lookupAsList(dictionary, s);
-            wordTree.setModel(makeWordTreeModel());
+            selectedWords = cachedLookupWords(s);
+            final DefaultTreeModel model = new DefaultTreeModel(rootWordTreeNode);
+            wordNodes = selectedWords.stream().map(w -> new IndexWordTreeNode(w, model)).collect(Collectors.toList());
+            wordTreeModel = model;
+            wordTree.setModel(model);
+            wordTree.clearSelection();
             definitionArea.setText("");
-
-            final List<TreeNode> allWordTreeNodes = getNodes((TreeNode) wordTree.getModel().getRoot());
-            for (final TreeNode n : allWordTreeNodes) {
-                if (n instanceof SynonymsNode || n instanceof PointerTypeNode) {
-                    wordTree.expandPath(path(n));
-                }
+            wordNodes.forEach(n -> wordTree.expandPath(path(n)));
+            if (!wordNodes.isEmpty()) {
+                final IndexWordTreeNode first = wordNodes.get(0);
+                first.whenLoaded(first::showFirstRelation);
             }
 
-            final Optional<TreeNode> firstWord =
-                    allWordTreeNodes.stream().filter(x -> x instanceof WordTreeNode).findFirst();
-            firstWord.ifPresent(treeNode -> wordTree.setSelectionPath(path(treeNode)));
-        }
-
-        private static long wordCount(@NotNull final String s) {
-            return Stream.of(s.split("\r?\n|\r| ")).filter(x -> x.trim().length() > 0).count();
+            wordTreeLatency.recordSince(start);
         }
 
         private static @NotNull
-        Set<Word> synonyms(@NotNull final IndexWord w) {
-            return w.getSenses().stream()
-                    .flatMap(x -> x.getWords().stream())
-                    .collect(Collectors.toSet());
+        String rootWords(@NotNull final Collection<IndexWord> m) {
+            return String.join(", ", m.stream().map(IndexWord::getLemma).collect(Collectors.toSet()));
         }
 
-        private static @NotNull
-        List<Word> synonymsAsList(@NotNull final IndexWord w) {
-            final Set<Word> words = synonyms(w);
-            final List<Word> l = new ArrayList<>(words);
-            l.sort(Comparator.comparing(Word::getLemma));
-            return l;
+        private void updateTitle() {
+            final StringBuilder b = new StringBuilder();
+            if (file != null) {
+                b.append(file.toPath());
+            }
+
+            if (!dirtyTracker.isClean()) {
+                b.append(" (unsaved)");
+            }
+
+            setTitle(b.toString());
         }
 
-        private static @NotNull
-        List<PointerTarget> getTargetsUnchecked(@NotNull final Synset s, @NotNull final PointerType t) {
-            try {
-                return s.getTargets(t);
-            } catch (final JWNLException e) {
-                throw new RuntimeException(e);
+        // Undoing or redoing an edit restores the dirty state it left or entered.
+        private class DocumentEdit extends AbstractUndoableEdit {
+
+            private final UndoableEdit edit;
+            private final long before;
+            private final long after;
+
+            public DocumentEdit(@NotNull final UndoableEdit edit, final long before, final long after) {
+                this.edit = Objects.requireNonNull(edit);
+                this.before = before;
+                this.after = after;
+            }
+
+            // Undo and redo do not go through the document filter.
+            private void announceRemoval(@NotNull final DocumentEvent.EventType removes) {
+                if (edit instanceof DocumentEvent e && e.getType() == removes) {
+                    documentText.invalidate();
+                    statistics.beforeRemove(documentText, e.getOffset(), e.getLength());
+                }
+            }
+
+            @Override
+            public void undo() throws CannotUndoException {
+                super.undo();
+                announceRemoval(DocumentEvent.EventType.INSERT);
+                edit.undo();
+                dirtyTracker.moveTo(before);
+            }
+
+            @Override
+            public void redo() throws CannotRedoException {
+                super.redo();
+                announceRemoval(DocumentEvent.EventType.REMOVE);
+                edit.redo();
+                dirtyTracker.moveTo(after);
             }
+
+            @Override
+            public String getPresentationName() {
+                return edit.getPresentationName();
+            }
+
         }
 
-        private static @NotNull
-        List<Word> targetsAsList(@NotNull final IndexWord m, @NotNull final PointerType type) {
-            return m.getSenses().stream()
-                    .flatMap(x -> getTargetsUnchecked(x, type).stream())
-                    .map(PointerTarget::getSynset)
-                    .flatMap(x -> x.getWords().stream())
-                    .distinct()
-                    .sorted(Comparator.comparing(Word::getLemma))
-                    .collect(Collectors.toList());
+        private void updateUndoMenuItems() {
+            undoMenuItem.setEnabled(undoManager.canUndo());
+            undoMenuItem.setText(undoManager.getUndoPresentationName());
+            redoMenuItem.setEnabled(undoManager.canRedo());
+            redoMenuItem.setText(undoManager.getRedoPresentationName());
         }
 
-        private static @NotNull
-        String rootWords(@NotNull final Collection<IndexWord> m) {
-            return String.join(", ", m.stream().map(IndexWord::getLemma).collect(Collectors.toSet()));
+        private void undoOrRedo(@NotNull final Runnable action) {
+            try {
+                action.run();
+            } catch (final CannotUndoException | CannotRedoException x) {
+                System.err.println(x);
+            }
+
+            dirtyStateChanged();
         }
 
-        private static @NotNull
-        List<TreeNode> getNodes(@NotNull final TreeNode node) {
-            final List<TreeNode> l = new ArrayList<>();
-            l.add(node);
-            for (final TreeNode child : Collections.list(node.children())) {
-                l.addAll(getNodes(child));
+        private void dirtyStateChanged() {
+            updateUndoMenuItems();
+            updateTitle();
+            if (dirtyTracker.mayBeClean(contentArea.getDocument().getLength())) {
+                reconcileTimer.restart();
+            } else {
+                reconcileTimer.stop();
             }
+        }
 
-            return l;
+        // The digest is only adopted if there has been no edit since the snapshot.
+        private void reconcile() {
+            final CharSequence content = document().snapshot();
+            final long state = dirtyTracker.state();
+            CompletableFuture.supplyAsync(() -> DirtyTracker.digest(content), fileExecutor).thenAcceptAsync(digest -> {
+                if (dirtyTracker.reconcile(state, content.length(), digest)) {
+                    updateTitle();
+                }
+            }, SwingUtilities::invokeLater);
         }
 
-        private void updateTitle() {
-            final StringBuilder b = new StringBuilder();
-            if (file != null) {
-                b.append(file.toPath());
+        private void updateStatus() {
+            final List<String> loading = new ArrayList<>();
+            final List<String> unavailable = new ArrayList<>();
+            components().forEach((name, f) -> {
+                if (!f.isDone()) {
+                    loading.add(name);
+                } else if (f.isCompletedExceptionally()) {
+                    unavailable.add(name);
+                }
+            });
+
+            final List<String> status = new ArrayList<>();
+            if (activity != null) {
+                status.add(activity);
             }
 
-            // FIXME: Maybe just keep whole old text.
-            final String currentHash = hash(getText(contentArea));
-            final boolean clean = savedHash != null && savedHash.equals(currentHash);
-            if (!clean) {
-                b.append(" (unsaved)");
+            if (!loading.isEmpty()) {
+                status.add("Loading " + String.join(", ", loading) + "\u2026");
             }
 
-            setTitle(b.toString());
+            if (!unavailable.isEmpty()) {
+                status.add("Unavailable: " + String.join(", ", unavailable));
+            }
+
+            statusLabel.setText(String.join("  ", status));
+            statusLabel.setVisible(!status.isEmpty());
         }
 
         public DocumentFrame() {
             super("WordWhittler");
+            setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            addWindowListener(new WindowAdapter() {
+
+                @Override
+                public void windowActivated(final WindowEvent e) {
+                    activeFrame = DocumentFrame.this;
+                }
+
+                @Override
+                public void windowClosed(final WindowEvent e) {
+                    checkScheduler.shutdown();
+                    reconcileTimer.stop();
+                    if (activeFrame == DocumentFrame.this) {
+                        activeFrame = null;
+                    }
+                }
+
+            });
 
             definitionArea.setEditable(false);
             wordTree.setRootVisible(false);
@@ -716,18 +968,29 @@ public class App {
             openMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.META_DOWN_MASK));
             openMenuItem.addActionListener(e -> {
                 final JFileChooser fileChooser = new JFileChooser();
+                final JComboBox<Charset> charsetChooser = addCharsetChooser(fileChooser, StandardCharsets.UTF_8);
                 int result = fileChooser.showOpenDialog(this);
                 if (result == JFileChooser.APPROVE_OPTION) {
                     final File selectedFile = fileChooser.getSelectedFile();
                     final DocumentFrame newFrame = createNewDocumentFrame();
-                    try {
-                        newFrame.loadFile(selectedFile);
-                    } catch (final IOException x) {
-                        // FIXME: Load the file before creating the new window.
-                        JOptionPane.showMessageDialog(this, x, "error loading", JOptionPane.ERROR_MESSAGE);
-                        newFrame.setVisible(false);
-                        System.err.println(x);
-                    }
+                    newFrame.loadFile(selectedFile, (Charset) charsetChooser.getSelectedItem())
+                            .exceptionallyAsync(x -> {
+                                JOptionPane.showMessageDialog(this, unwrap(x), "error loading",
+                                        JOptionPane.ERROR_MESSAGE);
+                                newFrame.dispose();
+                                System.err.println(x);
+                                return null;
+                            }, SwingUtilities::invokeLater);
+                }
+            });
+
+            final JMenuItem viewMenuItem = new JMenuItem("Open Read-Only...", KeyEvent.VK_R);
+            fileMenu.add(viewMenuItem);
+            viewMenuItem.addActionListener(e -> {
+                final JFileChooser fileChooser = new JFileChooser();
+                final JComboBox<Charset> charsetChooser = addCharsetChooser(fileChooser, StandardCharsets.UTF_8);
+                if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                    openViewer(fileChooser.getSelectedFile().toPath(), (Charset) charsetChooser.getSelectedItem());
                 }
             });
 
@@ -738,22 +1001,14 @@ public class App {
             closeMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W, InputEvent.META_DOWN_MASK));
             closeMenuItem.addActionListener(e -> {
                 // FIXME: Make sure there are no unsaved changes.
-                setVisible(false);
+                dispose();
             });
 
             saveMenuItem = new JMenuItem("Save", KeyEvent.VK_S);
             fileMenu.add(saveMenuItem);
             saveMenuItem.setEnabled(false);
             saveMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.META_DOWN_MASK));
-            saveMenuItem.addActionListener(e -> {
-                try {
-                    final String content = getText(contentArea);
-                    Files.write(file.toPath(), content.getBytes());
-                    savedHash = hash(content);
-                } catch (final IOException x) {
-                    JOptionPane.showMessageDialog(this, x, "error saving", JOptionPane.ERROR_MESSAGE);
-                }
-            });
+            saveMenuItem.addActionListener(e -> saveFile(file, charset));
 
             final JMenuItem saveAsMenuItem = new JMenuItem("Save As...", KeyEvent.VK_A);
             fileMenu.add(saveAsMenuItem);
@@ -761,24 +1016,26 @@ public class App {
                     KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.META_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
             saveAsMenuItem.addActionListener(e -> {
                 final JFileChooser fileChooser = new JFileChooser();
+                final JComboBox<Charset> charsetChooser = addCharsetChooser(fileChooser, charset);
                 int result = fileChooser.showSaveDialog(this);
                 if (result == JFileChooser.APPROVE_OPTION) {
-                    final File selectedFile = fileChooser.getSelectedFile();
-                    try {
-                        file = selectedFile;
-                        final String content = getText(contentArea);
-                        Files.write(file.toPath(), content.getBytes());
-                        savedHash = hash(content);
-                        updateTitle();
-                        saveMenuItem.setEnabled(true);
-                    } catch (final IOException x) {
-                        JOptionPane.showMessageDialog(this, x, "error saving", JOptionPane.ERROR_MESSAGE);
-                    }
+                    saveFile(fileChooser.getSelectedFile(), (Charset) charsetChooser.getSelectedItem());
                 }
             });
 
             fileMenu.add(new JSeparator());
 
+            final JMenuItem diagnosticsMenuItem = new JMenuItem("Diagnostics");
+            fileMenu.add(diagnosticsMenuItem);
+            diagnosticsMenuItem.addActionListener(e -> {
+                if (diagnosticsFrame == null) {
+                    diagnosticsFrame = new DiagnosticsFrame(wordCache);
+                }
+
+                diagnosticsFrame.setVisible(true);
+                diagnosticsFrame.toFront();
+            });
+
             final JMenuItem aboutMenuItem = new JMenuItem("About...");
             fileMenu.add(aboutMenuItem);
             aboutMenuItem.addActionListener(e -> {
@@ -818,6 +1075,19 @@ public class App {
                 System.exit(0);
             });
 
+            final JMenu editMenu = new JMenu("Edit");
+            menuBar.add(editMenu);
+
+            editMenu.add(undoMenuItem);
+            undoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.META_DOWN_MASK));
+            undoMenuItem.addActionListener(e -> undoOrRedo(undoManager::undo));
+
+            editMenu.add(redoMenuItem);
+            redoMenuItem.setAccelerator(
+                    KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.META_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+            redoMenuItem.addActionListener(e -> undoOrRedo(undoManager::redo));
+            updateUndoMenuItems();
+
             final DefaultTreeCellRenderer renderer = (DefaultTreeCellRenderer) wordTree.getCellRenderer();
             renderer.setLeafIcon(null);
             renderer.setClosedIcon(null);
@@ -840,25 +1110,38 @@ public class App {
                 if (!e.getValueIsAdjusting() && selectedMatches.size() == 1) {
                     final RuleMatch m = selectedMatches.get(0);
                     contentArea.removeCaretListener(contentCaretListener.get());
-                    contentArea.setCaretPosition(m.getToPos());
+                    // The list is from the last published check, so edits since may have shortened the document.
+                    contentArea.setCaretPosition(Math.min(m.getToPos(), document().getLength()));
                     contentArea.addCaretListener(contentCaretListener.get());
                     contentArea.requestFocus();
                 }
             };
 
-            errorList.setCellRenderer(new TransformingListCellRenderer<RuleMatch>(
-                    ruleMatch -> {
-                        final String region = getRegion(contentArea, ruleMatch);
-                        return region.trim() + ": " + message(ruleMatch);
-                    }));
+            errorList.setCellRenderer(new MatchList.Renderer());
+            errorList.setFixedCellHeight(errorList.getFontMetrics(errorList.getFont()).getHeight() + 2);
 
             errorList.addListSelectionListener(errorListListener);
 
-            final JTable wordTable = new JTable();
+            final IntConsumer selectErrorAt = dot -> {
+                final int ruleRow = matchIndex.last(dot);
+                errorList.removeListSelectionListener(errorListListener);
+                if (ruleRow == -1) {
+                    errorList.clearSelection();
+                } else {
+                    errorList.setSelectedIndex(ruleRow);
+                }
+
+                errorList.addListSelectionListener(errorListListener);
+            };
+
+            checkScheduler = new CheckScheduler(checker, () -> document().snapshot(), r -> {
+                matchIndex = r.index();
+                errorList.setModel(r);
+                matchHighlighter.setMatches(matchIndex);
+                selectErrorAt.accept(contentArea.getCaretPosition());
+            });
 
             contentCaretListener.set(e -> {
-                final Range<Integer> selection =
-                        Range.closed(contentArea.getSelectionStart(), contentArea.getSelectionEnd());
                 final int dot = e.getDot();
                 final int mark = e.getMark();
 
@@ -867,64 +1150,24 @@ public class App {
                     setWordOfInterest(wordAtCaret);
                 } else {
                     final int maxSelection = 20;
-                    String selectedString = contentArea.getText()
-                            .substring(contentArea.getSelectionStart(), contentArea.getSelectionEnd());
-                    if (selectedString.length() > maxSelection) {
-                        selectedString = selectedString.substring(0, maxSelection);
+                    final int start = contentArea.getSelectionStart();
+                    final int end = Math.min(contentArea.getSelectionEnd(), start + maxSelection);
+                    try {
+                        setWordOfInterest(document().snapshot(start, end).toString());
+                    } catch (final BadLocationException x) {
+                        throw new AssertionError(x);
                     }
-
-                    setWordOfInterest(selectedString);
                 }
 
                 ((AbstractTableModel) wordTable.getModel()).fireTableDataChanged();
 
-                try {
-                    final Highlighter h = contentArea.getHighlighter();
-                    h.removeAllHighlights();
-                    final List<RuleMatch> r = languageTool.check(getText(contentArea));
-                    errorList.setModel(new ListListModel<>(r));
-
-                    int ruleRow = 0;
-                    for (final RuleMatch m : r) {
-                        final RuleMatch.Type type = m.getType();
-                        final Highlighter.HighlightPainter painter = switch (type) {
-                            case Hint -> new DefaultHighlighter.DefaultHighlightPainter(Color.LIGHT_GRAY);
-                            case UnknownWord -> new DefaultHighlighter.DefaultHighlightPainter(Color.RED);
-                            case Other -> new DefaultHighlighter.DefaultHighlightPainter(Color.YELLOW);
-                        };
-
-                        try {
-                            h.addHighlight(m.getFromPos(), m.getToPos(), painter);
-                        } catch (final BadLocationException ex) {
-                            throw new AssertionError(ex);
-                        }
-
-                        if (dot >= m.getFromPos() && dot <= m.getToPos()) {
-                            errorList.removeListSelectionListener(errorListListener);
-                            errorList.setSelectedIndex(ruleRow);
-                            errorList.addListSelectionListener(errorListListener);
-                        }
-
-                        ruleRow++;
-                    }
-                } catch (final IOException ex) {
-                    throw new UncheckedIOException(ex);
-                }
-
-                if (dot != mark) {
-                    contentArea.removeCaretListener(contentCaretListener.get());
-                    contentArea.setSelectionStart(selection.lowerEndpoint());
-                    contentArea.setSelectionEnd(selection.upperEndpoint());
-                    contentArea.addCaretListener(contentCaretListener.get());
-                }
+                selectErrorAt.accept(dot);
             });
 
             contentArea.addCaretListener(contentCaretListener.get());
 
             final JComponent metaContainer = new Box(BoxLayout.Y_AXIS);
 
-            final JTable infoTable = new JTable();
-
             infoTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
 
                 private boolean isDanger(@NotNull final Object value) {
@@ -949,12 +1192,11 @@ public class App {
             });
 
             final TableRow[] infoRows = new TableRow[]{
-                    new TableRow("Characters", () -> Integer.toString(getText(contentArea).length())),
-                    new TableRow("Words", () -> Long.toString(wordCount(getText(contentArea)))),
-                    new TableRow("Twitter Characters",
-                            () -> Integer.toString(getTwitterCharacters(getText(contentArea)))),
+                    new TableRow("Characters", () -> Integer.toString(statistics.characters())),
+                    new TableRow("Words", () -> Long.toString(statistics.words())),
+                    new TableRow("Twitter Characters", () -> Integer.toString(statistics.twitterCharacters())),
                     new TableRow("Twitter Characters Remaining",
-                            () -> Integer.toString(280 - getTwitterCharacters(getText(contentArea))))
+                            () -> Integer.toString(TwitterText.maxLength - statistics.twitterCharacters()))
             };
 
             infoTable.setModel(new TableRowModel(infoRows));
@@ -982,35 +1224,85 @@ public class App {
                     new JScrollPane(definitionArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
                             JScrollPane.HORIZONTAL_SCROLLBAR_NEVER));
 
+            final JScrollPane contentScrollPane = new JScrollPane(contentArea);
+            matchHighlighter.track(contentScrollPane.getViewport());
+
             final JSplitPane mainSplitPane =
-                    new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, sideSplitPane, new JScrollPane(contentArea));
+                    new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, sideSplitPane, contentScrollPane);
 
             bottomSplitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, mainSplitPane, new JScrollPane(errorList));
 
             add(bottomSplitPane);
+            add(statusLabel, BorderLayout.SOUTH);
 
-            final DocumentListener propagatingDocumentListener = new DocumentListener() {
+            documentListener = new DocumentListener() {
 
                 @Override
                 public void insertUpdate(final DocumentEvent e) {
+                    documentText.invalidate();
+                    statistics.inserted(documentText, e.getOffset(), e.getLength());
+                    checkScheduler.request();
                     changedUpdate(e);
                 }
 
                 @Override
                 public void removeUpdate(final DocumentEvent e) {
+                    documentText.invalidate();
+                    statistics.removed(documentText, e.getOffset(), e.getLength());
+                    checkScheduler.request();
                     changedUpdate(e);
                 }
 
                 @Override
                 public void changedUpdate(final DocumentEvent e) {
-                    ((AbstractTableModel) infoTable.getModel()).fireTableDataChanged();
-                    ((AbstractTableModel) wordTable.getModel()).fireTableDataChanged();
-                    updateTitle();
+                    refreshTables();
+                }
+
+            };
+
+            undoableEditListener = e -> {
+                final long before = dirtyTracker.state();
+                undoManager.addEdit(new DocumentEdit(e.getEdit(), before, dirtyTracker.edited()));
+                dirtyStateChanged();
+            };
+            reconcileTimer.setRepeats(false);
+
+            // The statistics need to see text before it is removed.
+            documentFilter = new DocumentFilter() {
+
+                @Override
+                public void remove(final FilterBypass fb, final int offset, final int length)
+                        throws BadLocationException {
+                    documentText.invalidate();
+                    statistics.beforeRemove(documentText, offset, length);
+                    super.remove(fb, offset, length);
+                }
+
+                @Override
+                public void replace(final FilterBypass fb, final int offset, final int length, final String text,
+                                    final AttributeSet attrs) throws BadLocationException {
+                    if (length > 0) {
+                        documentText.invalidate();
+                        statistics.beforeRemove(documentText, offset, length);
+                    }
+
+                    super.replace(fb, offset, length, text, attrs);
                 }
 
             };
 
-            contentArea.getDocument().addDocumentListener(propagatingDocumentListener);
+            attach(contentArea.getDocument());
+
+            components().values()
+                    .forEach(f -> f.whenCompleteAsync((r, e) -> updateStatus(), SwingUtilities::invokeLater));
+            updateStatus();
+            dictionary.thenRunAsync(() -> {
+                if (selectedRegion != null) {
+                    setWordOfInterest(selectedRegion);
+                    ((AbstractTableModel) wordTable.getModel()).fireTableDataChanged();
+                }
+            }, SwingUtilities::invokeLater);
+            phrasesReady.thenRunAsync(checkScheduler::request, SwingUtilities::invokeLater);
 
             final boolean debug = false;
             if (debug) {
@@ -1023,47 +1315,153 @@ public class App {
             }
         }
 
-        private static @NotNull
-        String hash(@NotNull final String s) {
-            try {
-                final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-                messageDigest.update(s.getBytes());
-                return new String(messageDigest.digest());
-            } catch (final NoSuchAlgorithmException e) {
-                throw new AssertionError(e);
-            }
+        private void refreshTables() {
+            ((AbstractTableModel) infoTable.getModel()).fireTableDataChanged();
+            ((AbstractTableModel) wordTable.getModel()).fireTableDataChanged();
         }
 
-        private void loadFile(@NotNull final File file) throws IOException {
-            final String content = Files.readString(file.toPath());
-            this.file = file;
-            savedHash = hash(content);
-            contentArea.setText(content);
-            updateTitle();
-            saveMenuItem.setEnabled(true);
+        private void attach(@NotNull final Document document) {
+            document.addDocumentListener(documentListener);
+            document.addUndoableEditListener(undoableEditListener);
+            ((AbstractDocument) document).setDocumentFilter(documentFilter);
         }
 
-    }
+        private void detach(@NotNull final Document document) {
+            document.removeDocumentListener(documentListener);
+            document.removeUndoableEditListener(undoableEditListener);
+            ((AbstractDocument) document).setDocumentFilter(null);
+        }
+
+        private @NotNull
+        PieceTableDocument document() {
+            return (PieceTableDocument) contentArea.getDocument();
+        }
 
-    private static int getTwitterCharacters(@NotNull final String s) {
-        // See https://developer.twitter.com/en/docs/counting-characters
-        // FIXME: Need to handle counts for Unicode characters correctly?
+        private void setDocument(@NotNull final PieceTableDocument document,
+                                 @NotNull final DocumentStatistics statistics) {
+            detach(contentArea.getDocument());
+            matchIndex = MatchIndex.EMPTY;
+            errorList.setModel(MatchList.EMPTY);
+            matchHighlighter.setMatches(matchIndex);
+            documentText = new DocumentText(document);
+            this.statistics = statistics;
+            contentArea.setDocument(document);
+            attach(document);
+            undoManager.discardAllEdits();
+            updateUndoMenuItems();
+            refreshTables();
+            checkScheduler.request();
+        }
 
-        final StringTokenizer tokenizer = new StringTokenizer(s, " ", true);
-        int total = 0;
-        while (tokenizer.hasMoreElements()) {
-            final String token = tokenizer.nextToken();
-            if (isURL(token)) {
-                total += 23;
-            } else {
-                total += token.length();
-            }
+        private void setActivity(@Nullable final String activity) {
+            this.activity = activity;
+            updateStatus();
+        }
+
+        private record LoadedFile(@NotNull PieceTableDocument document, @NotNull DocumentStatistics statistics, int length,
+                                  @NotNull byte[] digest) {
+        }
+
+        private @NotNull
+        CompletableFuture<Void> loadFile(@NotNull final File file, @NotNull final Charset charset) {
+            setActivity("Opening " + file.getName() + "\u2026");
+            contentArea.setEditable(false);
+            return CompletableFuture.supplyAsync(() -> {
+                final PieceTableDocument document = new PieceTableDocument();
+                try {
+                    TextFiles.read(file.toPath(), charset, chunk -> {
+                        try {
+                            document.insertString(document.getLength(), chunk.toString(), null);
+                        } catch (final BadLocationException e) {
+                            throw new AssertionError(e);
+                        }
+                    });
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                final DocumentText text = new DocumentText(document);
+                return new LoadedFile(document, new DocumentStatistics(text), text.length(), DirtyTracker.digest(text));
+            }, fileExecutor).thenAcceptAsync(loaded -> {
+                this.file = file;
+                this.charset = charset;
+                setDocument(loaded.document(), loaded.statistics());
+                dirtyTracker.saved(dirtyTracker.edited(), loaded.length(), loaded.digest());
+                dirtyStateChanged();
+                saveMenuItem.setEnabled(true);
+            }, SwingUtilities::invokeLater).whenCompleteAsync((r, e) -> {
+                contentArea.setEditable(true);
+                setActivity(null);
+            }, SwingUtilities::invokeLater);
+        }
+
+        private void saveFile(@NotNull final File file, @NotNull final Charset charset) {
+            final CharSequence content = document().snapshot();
+            final long state = dirtyTracker.state();
+            setActivity("Saving " + file.getName() + "\u2026");
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    TextFiles.write(file.toPath(), content, charset);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                return DirtyTracker.digest(content);
+            }, fileExecutor).whenCompleteAsync((digest, e) -> {
+                setActivity(null);
+                if (e != null) {
+                    JOptionPane.showMessageDialog(this, unwrap(e), "error saving", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+
+                this.file = file;
+                this.charset = charset;
+                dirtyTracker.saved(state, content.length(), digest);
+                reconcileTimer.stop();
+                updateTitle();
+                saveMenuItem.setEnabled(true);
+            }, SwingUtilities::invokeLater);
+        }
+
+    }
+
+    private static @NotNull
+    Throwable unwrap(@NotNull Throwable e) {
+        while ((e instanceof CompletionException || e instanceof UncheckedIOException) && e.getCause() != null) {
+            e = e.getCause();
         }
 
-        return total;
+        return e;
     }
 
+    private static final Charset[] charsets = Stream.of("UTF-8", "UTF-16", "UTF-16BE", "UTF-16LE", "ISO-8859-1",
+                    "windows-1252", "US-ASCII", Charset.defaultCharset().name())
+            .filter(Charset::isSupported)
+            .map(Charset::forName)
+            .distinct()
+            .toArray(Charset[]::new);
+
+    // Adds a charset selector to a file chooser and returns it.
     private static @NotNull
+    JComboBox<Charset> addCharsetChooser(@NotNull final JFileChooser fileChooser, @NotNull final Charset initial) {
+        final JComboBox<Charset> comboBox = new JComboBox<>(charsets);
+        comboBox.setSelectedItem(initial);
+        final JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JLabel("Encoding"), BorderLayout.NORTH);
+        panel.add(comboBox, BorderLayout.CENTER);
+        fileChooser.setAccessory(panel);
+        return comboBox;
+    }
+
+    static long wordCount(@NotNull final String s) {
+        return Stream.of(s.split("\r?\n|\r| ")).filter(x -> x.trim().length() > 0).count();
+    }
+
+    static int getTwitterCharacters(@NotNull final String s) {
+        return TwitterText.weightedLength(s);
+    }
+
+    static @NotNull
     String getWordAtCaret(@NotNull final JTextComponent tc, final int caretPosition) {
         try {
             final int start = Utilities.getWordStart(tc, caretPosition);
@@ -1074,8 +1472,16 @@ public class App {
         }
     }
 
-    private static @NotNull String getRegion(@NotNull final JTextComponent tc, @NotNull final RuleMatch m) {
-        return getText(tc).substring(m.getFromPos(), m.getToPos());
+    private void openViewer(@NotNull final Path path, @NotNull final Charset charset) {
+        try {
+            final ViewerFrame viewer = new ViewerFrame(path, MappedText.open(path, charset),
+                    new IncrementalChecker(languageToolPool, () -> phraseMatcher), this::cachedLookupWords,
+                    lookupExecutor);
+            viewer.setSize(1200, 1000);
+            viewer.setVisible(true);
+        } catch (final IOException e) {
+            JOptionPane.showMessageDialog(null, e, "error opening", JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private @NotNull
@@ -1083,6 +1489,11 @@ public class App {
         final DocumentFrame mainFrame = new DocumentFrame();
         mainFrame.setSize(1200, 1000);
         mainFrame.setVisible(true);
+        if (!windowShown) {
+            windowShown = true;
+            startup.mark("window shown");
+        }
+
         SwingUtilities.invokeLater(() -> {
             mainFrame.bottomSplitPane.setDividerLocation(0.80);
             mainFrame.sideSplitPane.setDividerLocation(0.50);
@@ -1099,7 +1510,11 @@ public class App {
     }
 
     public static List<IndexWord> lookupAsList(@NotNull final Dictionary dictionary, @NotNull final String s) {
-        final Map<POS, IndexWord> m = lookup(dictionary, s);
+        return sortedWords(lookup(dictionary, s));
+    }
+
+    static @NotNull
+    List<IndexWord> sortedWords(@NotNull final Map<POS, IndexWord> m) {
         final Set<IndexWord> wordsAsSet = new HashSet<>(m.values());
         final List<IndexWord> wordsAsList = new ArrayList<>(wordsAsSet);
         wordsAsList.sort(Comparator.comparing(IndexWord::getLemma));
@@ -1123,7 +1538,17 @@ public class App {
         return m.build();
     }
 
-    public static void main(@NotNull final String[] args) {
+    public static void main(@NotNull final String[] args) throws IOException, JWNLException {
+        if (args.length > 0 && args[0].equals("--check")) {
+            BatchChecker.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--serve")) {
+            AnalysisServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         System.out.println("starting WordWhittler v" + version);
         SwingUtilities.invokeLater(() -> new App().createNewDocumentFrame());
     }
@@ -0,0 +1,270 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Checks files without a user interface, writing one JSON object per match to the output. Each file's matches are
+// written together, in order, as soon as the file is finished, and only a few files are read into memory at a time.
+public class BatchChecker {
+
+    // Extensions of files that are checked when a directory is walked. Other files are checked if the platform
+    // recognizes them as text.
+    private static final Set<String> textExtensions =
+            Set.of("txt", "text", "md", "markdown", "rst", "adoc", "asciidoc", "org", "tex", "textile", "wiki");
+
+    interface Checker {
+
+        @NotNull
+        List<RuleMatch> check(@NotNull String text) throws IOException;
+
+    }
+
+    private final Checker languageTools;
+    private final int parallelism;
+    // Enough files that the workers stay busy while the next file is read, but no more.
+    private final Semaphore filesInFlight;
+    private final Charset charset;
+    private final Writer out;
+    private final PrintStream err;
+    private final AtomicLong words = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public BatchChecker(@NotNull final LanguageToolPool languageTools, @NotNull final Charset charset,
+                        @NotNull final OutputStream out, @NotNull final PrintStream err) {
+        this(languageTools::check, languageTools.size(), charset, out, err);
+    }
+
+    BatchChecker(@NotNull final Checker languageTools, final int parallelism, @NotNull final Charset charset,
+                 @NotNull final OutputStream out, @NotNull final PrintStream err) {
+        this.languageTools = languageTools;
+        this.parallelism = parallelism;
+        this.filesInFlight = new Semaphore(2 * parallelism);
+        this.charset = charset;
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.err = err;
+    }
+
+    static @NotNull
+    String toJson(@NotNull final Path file, @NotNull final RuleMatch m) {
+        final StringBuilder b = new StringBuilder();
+        b.append("{\"file\":");
+        Json.appendQuoted(b, file.toString());
+        b.append(',');
+        Json.appendMatchFields(b, m);
+        return b.append('}').toString();
+    }
+
+    private void emit(@NotNull final Path file, @NotNull final List<RuleMatch> l) {
+        final String lines = l.stream().map(m -> toJson(file, m) + '\n').collect(Collectors.joining());
+        synchronized (out) {
+            try {
+                out.write(lines);
+                out.flush();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        matches.addAndGet(l.size());
+    }
+
+    private class ParagraphTask extends RecursiveTask<List<RuleMatch>> {
+
+        private final IncrementalChecker.Paragraph paragraph;
+
+        ParagraphTask(@NotNull final IncrementalChecker.Paragraph paragraph) {
+            this.paragraph = paragraph;
+        }
+
+        @Override
+        protected List<RuleMatch> compute() {
+            try {
+                final List<RuleMatch> l = new ArrayList<>();
+                for (final RuleMatch m : languageTools.check(paragraph.text())) {
+                    l.add(IncrementalChecker.rebase(m, paragraph.start()));
+                }
+
+                return l;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private class FileTask extends RecursiveAction {
+
+        private final Path file;
+
+        FileTask(@NotNull final Path file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                checkFile();
+            } finally {
+                filesInFlight.release();
+            }
+        }
+
+        private void checkFile() {
+            final String text;
+            try {
+                text = Files.readString(file, charset);
+            } catch (final CharacterCodingException e) {
+                skipped.incrementAndGet();
+                err.println(file + ": skipped, not " + charset.name() + " text");
+                return;
+            } catch (final IOException e) {
+                failures.incrementAndGet();
+                err.println(file + ": " + e);
+                return;
+            }
+
+            try {
+                words.addAndGet(App.wordCount(text));
+                final List<ParagraphTask> tasks = IncrementalChecker.paragraphs(text).stream()
+                        .map(ParagraphTask::new)
+                        .collect(Collectors.toList());
+                invokeAll(tasks);
+                final List<RuleMatch> l = new ArrayList<>();
+                for (final ParagraphTask t : tasks) {
+                    l.addAll(t.join());
+                }
+
+                emit(file, l);
+                files.incrementAndGet();
+            } catch (final RuntimeException e) {
+                failures.incrementAndGet();
+                err.println(file + ": " + e);
+            }
+        }
+
+    }
+
+    static boolean isText(@NotNull final Path file) {
+        final String name = file.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        if (dot >= 0 && textExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+
+        try {
+            final String type = Files.probeContentType(file);
+            return type != null && type.startsWith("text/");
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    // A file named on the command line is always checked, but only text files are taken from a directory.
+    private static @NotNull
+    Stream<Path> expand(@NotNull final Path p) {
+        if (!Files.isDirectory(p)) {
+            return Stream.of(p);
+        }
+
+        try {
+            return Files.walk(p).filter(Files::isRegularFile).filter(BatchChecker::isText).sorted();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the number of files that could not be checked.
+    public int check(@NotNull final List<Path> paths) throws IOException {
+        final long start = System.nanoTime();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final List<FileTask> tasks = new ArrayList<>();
+            final Iterator<Path> remaining = paths.stream().flatMap(BatchChecker::expand).iterator();
+            while (remaining.hasNext()) {
+                // A file is not handed to the pool until one of those in flight is finished. Waiting inside the pool
+                // would not do, as a worker that joins its paragraphs can steal and start another file.
+                filesInFlight.acquire();
+                final FileTask t = new FileTask(remaining.next());
+                tasks.add(t);
+                pool.execute(t);
+            }
+
+            tasks.forEach(FileTask::join);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            pool.shutdown();
+            out.flush();
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        err.printf("checked %d files (%d words, %d matches, %d skipped) in %.1f seconds: %.0f words/sec%n",
+                files.get(), words.get(), matches.get(), skipped.get(), seconds, words.get() / seconds);
+        return failures.get();
+    }
+
+    private static void usage() {
+        System.err.println("usage: WordWhittler --check [--charset <name>] <file or directory>...");
+        System.exit(2);
+    }
+
+    public static void main(@NotNull final String[] args) throws IOException {
+        Charset charset = StandardCharsets.UTF_8;
+        int first = 0;
+        if (args.length > 0 && args[0].equals("--charset")) {
+            if (args.length < 2) {
+                usage();
+            }
+
+            try {
+                charset = Charset.forName(args[1]);
+            } catch (final IllegalArgumentException e) {
+                System.err.println("unknown charset: " + args[1]);
+                usage();
+            }
+
+            first = 2;
+        }
+
+        if (first == args.length) {
+            usage();
+        }
+
+        final List<Path> paths = Stream.of(args).skip(first).map(Path::of).collect(Collectors.toList());
+        final BatchChecker checker = new BatchChecker(new LanguageToolPool(LanguageToolPool.defaultSize()), charset,
+                System.out, System.err);
+        System.exit(checker.check(paths) == 0 ? 0 : 1);
+    }
+
+}
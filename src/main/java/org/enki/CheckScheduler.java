@@ -0,0 +1,90 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Runs grammar checks off the Event Dispatch Thread. A result is only published if no newer request was made while it
+// was being computed. All public methods must be called on the Event Dispatch Thread.
+public class CheckScheduler {
+
+    private static final int debounceMillis = 250;
+
+    private final IncrementalChecker checker;
+    private final Supplier<? extends CharSequence> text;
+    private final Consumer<MatchList> publisher;
+    private final Timer debounceTimer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "check scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile long revision;
+    private Future<?> inFlight;
+
+    public CheckScheduler(@NotNull final IncrementalChecker checker, @NotNull final Supplier<? extends CharSequence> text,
+                          @NotNull final Consumer<MatchList> publisher) {
+        this.checker = Objects.requireNonNull(checker);
+        this.text = Objects.requireNonNull(text);
+        this.publisher = Objects.requireNonNull(publisher);
+        debounceTimer = new Timer(debounceMillis, e -> start());
+        debounceTimer.setRepeats(false);
+    }
+
+    public void request() {
+        assert SwingUtilities.isEventDispatchThread();
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        revision++;
+        debounceTimer.restart();
+    }
+
+    private void start() {
+        final long requested = revision;
+        final CharSequence snapshot = text.get();
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+
+        inFlight = executor.submit(() -> {
+            if (requested != revision) {
+                return;
+            }
+
+            try {
+                final MatchList matches = MatchList.of(checker.check(snapshot), snapshot);
+                SwingUtilities.invokeLater(() -> {
+                    if (requested == revision) {
+                        publisher.accept(matches);
+                    }
+                });
+            } catch (final InterruptedIOException e) {
+                // Superseded by a newer request.
+            } catch (final IOException e) {
+                System.err.println(e);
+            } catch (final RuntimeException e) {
+                // A cancellation from a superseded request is expected; anything else would leave the list stale.
+                if (requested == revision) {
+                    System.err.println(e);
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        debounceTimer.stop();
+        executor.shutdownNow();
+    }
+
+}
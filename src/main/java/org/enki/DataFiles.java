@@ -0,0 +1,28 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Locations of the files WordWhittler derives from its bundled data and keeps between runs.
+public class DataFiles {
+
+    private DataFiles() {
+        throw new AssertionError("static utility class is not intended to be instantiated");
+    }
+
+    public static @NotNull
+    Path cacheDirectory() throws IOException {
+        final Path directory = Path.of(System.getProperty("user.home"), ".wordwhittler");
+        Files.createDirectories(directory);
+        return directory;
+    }
+
+    public static @NotNull
+    Path cacheFile(@NotNull final String name) throws IOException {
+        return cacheDirectory().resolve(name);
+    }
+
+}
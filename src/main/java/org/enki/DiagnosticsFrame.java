@@ -0,0 +1,100 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Shows the latency histograms of the main steps and the word cache counters, refreshed every second while the window
+// is open.
+public class DiagnosticsFrame extends JFrame {
+
+    private static final String[] columns = {"Step", "Count", "Mean (ms)", "p50 (ms)", "p99 (ms)", "Max (ms)"};
+
+    private final List<LatencyHistogram.Summary> summaries = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final AbstractTableModel model = new AbstractTableModel() {
+
+        @Override
+        public int getRowCount() {
+            return names.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(final int column) {
+            return columns[column];
+        }
+
+        @Override
+        public boolean isCellEditable(final int rowIndex, final int columnIndex) {
+            return false;
+        }
+
+        @Override
+        public Object getValueAt(final int rowIndex, final int columnIndex) {
+            final LatencyHistogram.Summary s = summaries.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> names.get(rowIndex);
+                case 1 -> s.count();
+                case 2 -> millis(Math.round(s.meanNanos()));
+                case 3 -> millis(s.p50Nanos());
+                case 4 -> millis(s.p99Nanos());
+                case 5 -> millis(s.maxNanos());
+                default -> throw new AssertionError();
+            };
+        }
+
+    };
+    private final Timer refreshTimer = new Timer(1000, e -> refresh());
+    private final WordCache wordCache;
+    private final JLabel cacheLabel = new JLabel();
+
+    public DiagnosticsFrame(@NotNull final WordCache wordCache) {
+        super("Diagnostics");
+        this.wordCache = wordCache;
+        final JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        cacheLabel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        add(cacheLabel, BorderLayout.SOUTH);
+        setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+        setSize(600, 300);
+    }
+
+    @Override
+    public void setVisible(final boolean visible) {
+        super.setVisible(visible);
+        if (visible) {
+            refresh();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+    }
+
+    private static @NotNull
+    String millis(final long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private void refresh() {
+        names.clear();
+        summaries.clear();
+        Metrics.histograms().forEach((name, h) -> {
+            names.add(name);
+            summaries.add(h.summary());
+        });
+        model.fireTableDataChanged();
+        cacheLabel.setText("Cached " + wordCache);
+    }
+
+}
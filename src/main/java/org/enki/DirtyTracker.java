@@ -0,0 +1,104 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Tracks whether a document differs from what was last saved. Every edit moves the document to a new state, and undoing
+// or redoing an edit moves it back to the state the edit left or entered, so the usual answer is a comparison of two
+// longs. The content can also come back to what was saved by other means, such as retyping a deleted word. That is only
+// possible when the length matches the saved length, and only then is a digest of the content worth comparing.
+public class DirtyTracker {
+
+    private static final LatencyHistogram digestLatency = Metrics.histogram("content digest");
+
+    private long nextState = 1;
+    private long state;
+    private long savedState = -1;
+    private int savedLength = -1;
+    private byte[] savedDigest;
+
+    public long state() {
+        return state;
+    }
+
+    // Records an edit and returns the new state.
+    public long edited() {
+        state = nextState++;
+        return state;
+    }
+
+    // Returns to a state previously returned by edited(), as when an edit is undone or redone.
+    public void moveTo(final long state) {
+        this.state = state;
+    }
+
+    public void saved(@NotNull final CharSequence content) {
+        saved(state, content.length(), digest(content));
+    }
+
+    // Records that the content as of the given state was saved, for when the saving, and the digest, happened off the
+    // Event Dispatch Thread while editing went on.
+    public void saved(final long state, final int length, @NotNull final byte[] digest) {
+        savedState = state;
+        savedLength = length;
+        savedDigest = digest.clone();
+    }
+
+    public boolean isClean() {
+        return state == savedState;
+    }
+
+    // Whether the content could be what was saved even though the state differs.
+    public boolean mayBeClean(final int length) {
+        return !isClean() && savedDigest != null && length == savedLength;
+    }
+
+    // Compares the content with what was saved and, if it is the same, adopts the current state as the saved one.
+    public boolean reconcile(@NotNull final CharSequence content) {
+        return mayBeClean(content.length()) ? reconcile(state, content.length(), digest(content)) : isClean();
+    }
+
+    // Reconciles with a digest of the content as of the given state, for when the digest was taken off the Event
+    // Dispatch Thread. A digest of a state that has since been left says nothing about the content, so it is ignored.
+    public boolean reconcile(final long state, final int length, @NotNull final byte[] digest) {
+        if (state == this.state && mayBeClean(length) && Arrays.equals(digest, savedDigest)) {
+            savedState = state;
+        }
+
+        return isClean();
+    }
+
+    // Digests the UTF-16 code units of the content a chunk at a time, without copying the content.
+    static @NotNull
+    byte[] digest(@NotNull final CharSequence content) {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+
+        final long start = System.nanoTime();
+        final byte[] buffer = new byte[8192];
+        final int length = content.length();
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = content.charAt(i);
+            buffer[n++] = (byte) (c >> 8);
+            buffer[n++] = (byte) c;
+            if (n == buffer.length) {
+                messageDigest.update(buffer, 0, n);
+                n = 0;
+            }
+        }
+
+        messageDigest.update(buffer, 0, n);
+        final byte[] digest = messageDigest.digest();
+        digestLatency.recordSince(start);
+        return digest;
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+// Maintains the character, word and Twitter character counts of a document as it is edited. The counts have the same
+// definitions as App.wordCount and TwitterText.weightedLength. Both are sums over runs of text between spaces and line
+// breaks, so an edit only rescans the run around it and a keystroke costs time proportional to the edit, not to the
+// document.
+//
+// A removal has to be announced with beforeRemove while the text is still there. A removal that was not announced falls
+// back to a full recount.
+public class DocumentStatistics {
+
+    private int characters;
+    private long words;
+    // The difference between the Twitter character count and the character count, due to URLs, emoji and characters
+    // that count 2.
+    private int twitterAdjustment;
+
+    private int pendingOffset = -1;
+    private int pendingLength = -1;
+
+    public DocumentStatistics(@NotNull final CharSequence text) {
+        reset(text);
+    }
+
+    public void reset(@NotNull final CharSequence text) {
+        characters = text.length();
+        words = 0;
+        twitterAdjustment = 0;
+        add(text, 0, text.length(), 1);
+        pendingOffset = -1;
+        pendingLength = -1;
+    }
+
+    public int characters() {
+        return characters;
+    }
+
+    public long words() {
+        return words;
+    }
+
+    public int twitterCharacters() {
+        return characters + twitterAdjustment;
+    }
+
+    // A delimiter of both words and Twitter tokens, so that no count depends on text on both sides of it.
+    private static boolean isWordDelimiter(final char c) {
+        return c == ' ' || c == '\n' || c == '\r';
+    }
+
+    private static int runStart(@NotNull final CharSequence s, int i) {
+        while (i > 0 && !isWordDelimiter(s.charAt(i - 1))) {
+            i--;
+        }
+
+        return i;
+    }
+
+    private static int runEnd(@NotNull final CharSequence s, int i) {
+        final int length = s.length();
+        while (i < length && !isWordDelimiter(s.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    // Adds (sign 1) or subtracts (sign -1) the words and Twitter characters in [start, end), which must be bounded by
+    // spaces, line breaks or the ends of the text.
+    private void add(@NotNull final CharSequence s, final int start, final int end, final int sign) {
+        twitterAdjustment += sign * (TwitterText.weightedLength(s, start, end) - (end - start));
+        boolean inWord = false;
+        boolean wordCounts = false;
+        for (int i = start; i <= end; i++) {
+            final char c = i < end ? s.charAt(i) : ' ';
+            if (isWordDelimiter(c)) {
+                if (inWord && wordCounts) {
+                    words += sign;
+                }
+
+                inWord = false;
+                wordCounts = false;
+            } else {
+                inWord = true;
+                // A token only counts as a word if it has something other than whitespace and control characters.
+                wordCounts |= c > ' ';
+            }
+        }
+    }
+
+    // Called after text has been inserted.
+    public void inserted(@NotNull final CharSequence text, final int offset, final int length) {
+        final int start = runStart(text, offset);
+        final int end = runEnd(text, offset + length);
+
+        // Before the insertion, the run was the same text without the inserted characters.
+        final StringBuilder before = new StringBuilder(end - start - length);
+        before.append(text, start, offset).append(text, offset + length, end);
+        add(before, 0, before.length(), -1);
+        add(text, start, end, 1);
+        characters += length;
+    }
+
+    // Called before text is removed, while it is still in the document.
+    public void beforeRemove(@NotNull final CharSequence text, final int offset, final int length) {
+        add(text, runStart(text, offset), runEnd(text, offset + length), -1);
+        pendingOffset = offset;
+        pendingLength = length;
+    }
+
+    // Called after text has been removed.
+    public void removed(@NotNull final CharSequence text, final int offset, final int length) {
+        if (offset != pendingOffset || length != pendingLength) {
+            reset(text);
+            return;
+        }
+
+        add(text, runStart(text, offset), runEnd(text, offset), 1);
+        characters -= length;
+        pendingOffset = -1;
+        pendingLength = -1;
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Objects;
+
+// A CharSequence view of a Document that does not copy it. Characters are read through a Segment with partial return
+// enabled, so sequential access reads straight from the document's own storage a chunk at a time. The view reflects
+// the document as it is when read; it must only be used on the thread that owns the document.
+public class DocumentText implements CharSequence {
+
+    private final Document document;
+    private final Segment segment = new Segment();
+    private int chunkStart;
+    private int chunkEnd;
+
+    public DocumentText(@NotNull final Document document) {
+        this.document = Objects.requireNonNull(document);
+        segment.setPartialReturn(true);
+    }
+
+    // Must be called after the document changes, before the view is read again.
+    public void invalidate() {
+        chunkStart = 0;
+        chunkEnd = 0;
+    }
+
+    @Override
+    public int length() {
+        return document.getLength();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < chunkStart || index >= chunkEnd) {
+            final int length = document.getLength();
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            try {
+                document.getText(index, length - index, segment);
+            } catch (final BadLocationException e) {
+                throw new AssertionError(e);
+            }
+
+            chunkStart = index;
+            chunkEnd = index + segment.count;
+        }
+
+        return segment.array[segment.offset + index - chunkStart];
+    }
+
+    @Override
+    public @NotNull
+    CharSequence subSequence(final int start, final int end) {
+        Objects.checkFromToIndex(start, end, length());
+        try {
+            return document.getText(start, end - start);
+        } catch (final BadLocationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public @NotNull
+    String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+}
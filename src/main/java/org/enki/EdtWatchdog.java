@@ -0,0 +1,243 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Detects when the Event Dispatch Thread stops processing events and records what it was doing. A heartbeat is posted
+// to the event queue and its stack is sampled while the heartbeat is late. If it has not run within the threshold, the
+// EDT is stalled, and the stall is appended to a log at once with the event being dispatched when it began, a
+// description of the context (such as the size of the document) and the distinct stacks seen, most frequent first, so
+// that a freeze that never ends is still recorded. When the heartbeat finally runs, the duration of the stall is
+// appended. Heartbeats are also run inside modal dialogs, so waiting on a dialog is not a stall.
+//
+// The log is kept in the data directory and rolled over when it grows past maxLogBytes, keeping one previous log.
+public class EdtWatchdog {
+
+    public static final String logFileName = "stalls.log";
+    public static final long defaultThresholdMillis = 500;
+    private static final long maxLogBytes = 1 << 20;
+
+    private final long thresholdNanos;
+    private final long sampleMillis;
+    private final Supplier<String> context;
+    private final Path log;
+    private final LatencyHistogram stallLatency = Metrics.histogram("EDT stall");
+    private volatile long heartbeatPosted;
+    private volatile boolean heartbeatPending;
+    private volatile Thread edt;
+    // The event being dispatched, or null when idle. It is only described when a stall is logged, so that dispatch
+    // does no more than a volatile write.
+    private volatile AWTEvent dispatching;
+    private WatchedEventQueue queue;
+    private Thread watcher;
+
+    // Records the event being dispatched. Dispatch nests inside modal dialogs, so the outer event is restored after.
+    private class WatchedEventQueue extends EventQueue {
+
+        @Override
+        protected void dispatchEvent(final AWTEvent event) {
+            final AWTEvent outer = dispatching;
+            dispatching = event;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                dispatching = outer;
+            }
+        }
+
+        void remove() {
+            pop();
+        }
+
+    }
+
+    public EdtWatchdog(final long thresholdMillis, @NotNull final Supplier<String> context, @NotNull final Path log) {
+        if (thresholdMillis < 1) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        sampleMillis = Math.max(10, thresholdMillis / 10);
+        this.context = Objects.requireNonNull(context);
+        this.log = Objects.requireNonNull(log);
+    }
+
+    // The threshold comes from the wordwhittler.stallMillis system property; 0 turns the watchdog off.
+    public static long configuredThresholdMillis() {
+        return Long.getLong("wordwhittler.stallMillis", defaultThresholdMillis);
+    }
+
+    public synchronized void start() {
+        if (watcher != null) {
+            throw new IllegalStateException("already started");
+        }
+
+        queue = new WatchedEventQueue();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(queue);
+        watcher = new Thread(this::watch, "EDT watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Restores the previous event queue and ends the watching thread, abandoning a stall being sampled.
+    public synchronized void stop() throws InterruptedException {
+        if (watcher == null) {
+            return;
+        }
+
+        queue.remove();
+        watcher.interrupt();
+        watcher.join();
+        queue = null;
+        watcher = null;
+    }
+
+    private static @NotNull
+    String describe(@NotNull final AWTEvent event) {
+        final Object source = event.getSource();
+        final String target;
+        if (source instanceof AbstractButton b && b.getText() != null && !b.getText().isEmpty()) {
+            target = source.getClass().getSimpleName() + " '" + b.getText() + "'";
+        } else {
+            target = source == null ? "null" : source.getClass().getName();
+        }
+
+        if (event instanceof KeyEvent k) {
+            return "key " + KeyEvent.getKeyText(k.getKeyCode()) + " (" + KeyEvent.getModifiersExText(k.getModifiersEx())
+                    + ") on " + target;
+        } else if (event instanceof MouseEvent) {
+            return event.paramString().split(",")[0] + " on " + target;
+        } else if (event instanceof InvocationEvent) {
+            // The runnable names the lambda or class that was invoked later.
+            final String p = event.paramString();
+            final int start = Math.max(0, p.indexOf("runnable="));
+            final int end = p.indexOf(",notifier", start);
+            return "invocation of " + (end < 0 ? p.substring(start) : p.substring(start, end));
+        } else {
+            return event.getClass().getSimpleName() + " " + event.paramString().split(",")[0] + " on " + target;
+        }
+    }
+
+    private void postHeartbeat() {
+        heartbeatPending = true;
+        heartbeatPosted = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            edt = Thread.currentThread();
+            heartbeatPending = false;
+        });
+    }
+
+    private void watch() {
+        postHeartbeat();
+        while (true) {
+            try {
+                Thread.sleep(sampleMillis);
+            } catch (final InterruptedException e) {
+                return;
+            }
+
+            if (!heartbeatPending) {
+                postHeartbeat();
+            } else if (edt != null) {
+                sampleStall();
+                postHeartbeat();
+            }
+        }
+    }
+
+    // Samples the stack of the EDT until the pending heartbeat runs. A heartbeat that runs within the threshold was only
+    // late, and nothing is logged; otherwise the stall is logged with the samples taken until then, and no more are
+    // taken.
+    private void sampleStall() {
+        final long start = heartbeatPosted;
+        final AWTEvent event = dispatching;
+        final Map<List<StackTraceElement>, Integer> samples = new LinkedHashMap<>();
+        int sampleCount = 0;
+        boolean reported = false;
+        while (heartbeatPending) {
+            if (!reported) {
+                samples.merge(Arrays.asList(edt.getStackTrace()), 1, Integer::sum);
+                sampleCount++;
+                final long nanos = System.nanoTime() - start;
+                if (nanos >= thresholdNanos) {
+                    // The EDT is stuck, so reading the event's source from this thread does not race with it in
+                    // practice.
+                    final String description = event == null ? "idle" : describe(event);
+                    write(report(TimeUnit.NANOSECONDS.toMillis(nanos), description, context.get(), samples,
+                            sampleCount));
+                    reported = true;
+                }
+            }
+
+            try {
+                Thread.sleep(sampleMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (reported) {
+            final long nanos = System.nanoTime() - start;
+            stallLatency.record(nanos);
+            write(Instant.now() + " EDT recovered after " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms\n\n");
+        }
+    }
+
+    static @NotNull
+    String report(final long millis, @NotNull final String event, @NotNull final String context,
+                  @NotNull final Map<List<StackTraceElement>, Integer> samples, final int sampleCount) {
+        final StringBuilder b = new StringBuilder();
+        b.append(Instant.now()).append(" EDT stalled for ").append(millis).append(" ms\n");
+        b.append("  event: ").append(event).append('\n');
+        b.append("  context: ").append(context).append('\n');
+        final List<Map.Entry<List<StackTraceElement>, Integer>> sorted = new ArrayList<>(samples.entrySet());
+        sorted.sort(Map.Entry.<List<StackTraceElement>, Integer>comparingByValue(Comparator.reverseOrder()));
+        for (final Map.Entry<List<StackTraceElement>, Integer> e : sorted) {
+            b.append("  ").append(e.getValue()).append(" of ").append(sampleCount).append(" samples:\n");
+            for (final StackTraceElement frame : e.getKey()) {
+                b.append("    at ").append(frame).append('\n');
+            }
+        }
+
+        return b.append('\n').toString();
+    }
+
+    private void write(@NotNull final String entry) {
+        try {
+            if (Files.exists(log) && Files.size(log) > maxLogBytes) {
+                Files.move(log, log.resolveSibling(log.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            try (final Writer w = Files.newBufferedWriter(log, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                w.write(entry);
+            }
+        } catch (final IOException e) {
+            System.err.println("cannot write " + log + ": " + e);
+        }
+    }
+
+}
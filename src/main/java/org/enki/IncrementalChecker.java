@@ -0,0 +1,192 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Checks text paragraph by paragraph so that only paragraphs which changed since the last check go through LanguageTool.
+// An interrupted check keeps the paragraphs that finished and leaves the rest running for the next check.
+public class IncrementalChecker {
+
+    record Paragraph(int start, @NotNull String text) {
+    }
+
+    private final Function<String, CompletableFuture<List<RuleMatch>>> submit;
+    private final Supplier<PhraseMatcher> phraseMatcher;
+
+    // Keyed by paragraph content. Match offsets are relative to the start of the paragraph.
+    private Map<String, List<RuleMatch>> cache = new HashMap<>();
+    // Left running by an interrupted check.
+    private final Map<String, CompletableFuture<List<RuleMatch>>> inFlight = new HashMap<>();
+    private Map<String, List<RuleMatch>> phraseCache = new HashMap<>();
+    private PhraseMatcher cachedPhraseMatcher;
+
+    public IncrementalChecker(@NotNull final LanguageToolPool languageTools) {
+        this(languageTools, () -> null);
+    }
+
+    public IncrementalChecker(@NotNull final LanguageToolPool languageTools,
+                              @NotNull final Supplier<PhraseMatcher> phraseMatcher) {
+        this(languageTools::checkAsync, phraseMatcher);
+    }
+
+    IncrementalChecker(@NotNull final Function<String, CompletableFuture<List<RuleMatch>>> submit,
+                       @NotNull final Supplier<PhraseMatcher> phraseMatcher) {
+        this.submit = Objects.requireNonNull(submit);
+        this.phraseMatcher = Objects.requireNonNull(phraseMatcher);
+    }
+
+    private static boolean completedNormally(@NotNull final CompletableFuture<?> f) {
+        return f.isDone() && !f.isCompletedExceptionally();
+    }
+
+    // Whether a line break, "\n" or "\r\n", starts at i.
+    private static boolean isLineBreakAt(@NotNull final CharSequence text, final int i) {
+        if (i >= text.length()) {
+            return false;
+        }
+
+        final char c = text.charAt(i);
+        return c == '\n' || (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n');
+    }
+
+    // Splits the text at blank lines, where LanguageTool starts a new paragraph.
+    static @NotNull
+    List<Paragraph> paragraphs(@NotNull final CharSequence text) {
+        final List<Paragraph> l = new ArrayList<>();
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (isLineBreakAt(text, i)) {
+                i += text.charAt(i) == '\r' ? 2 : 1;
+            }
+
+            if (i >= length) {
+                break;
+            }
+
+            final int start = i;
+            int end = length;
+            for (; i < length; i++) {
+                if (text.charAt(i) == '\n' && isLineBreakAt(text, i + 1)) {
+                    end = i;
+                    break;
+                }
+            }
+
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+
+            l.add(new Paragraph(start, text.subSequence(start, end).toString()));
+        }
+
+        return l;
+    }
+
+    static @NotNull
+    RuleMatch rebase(@NotNull final RuleMatch m, final int offset) {
+        final RuleMatch rebased = new RuleMatch(m);
+        rebased.setOffsetPosition(m.getFromPos() + offset, m.getToPos() + offset);
+        return rebased;
+    }
+
+    public synchronized @NotNull
+    List<RuleMatch> check(@NotNull final CharSequence text) throws IOException {
+        final List<Paragraph> paragraphs = paragraphs(text);
+        inFlight.forEach((paragraph, f) -> {
+            if (completedNormally(f)) {
+                cache.put(paragraph, f.join());
+            }
+        });
+
+        final Map<String, CompletableFuture<List<RuleMatch>>> pending = new HashMap<>();
+        for (final Paragraph p : paragraphs) {
+            if (!cache.containsKey(p.text()) && !pending.containsKey(p.text())) {
+                final CompletableFuture<List<RuleMatch>> f = inFlight.remove(p.text());
+                pending.put(p.text(), f != null && !f.isDone() ? f : submit.apply(p.text()));
+            }
+        }
+
+        // Whatever is left was for paragraphs that have since been edited or deleted.
+        inFlight.values().forEach(f -> f.cancel(false));
+        inFlight.clear();
+
+        final PhraseMatcher currentPhraseMatcher = phraseMatcher.get();
+        if (currentPhraseMatcher != cachedPhraseMatcher) {
+            phraseCache = new HashMap<>();
+            cachedPhraseMatcher = currentPhraseMatcher;
+        }
+
+        final Map<String, List<RuleMatch>> checked = new HashMap<>();
+        final Map<String, List<RuleMatch>> phrasesChecked = new HashMap<>();
+        final List<RuleMatch> result = new ArrayList<>();
+        boolean complete = false;
+        try {
+            for (final Paragraph p : paragraphs) {
+                List<RuleMatch> matches = checked.get(p.text());
+                if (matches == null) {
+                    matches = cache.get(p.text());
+                    if (matches == null) {
+                        matches = LanguageToolPool.await(pending.get(p.text()));
+                    }
+
+                    checked.put(p.text(), matches);
+                }
+
+                List<RuleMatch> phraseMatches = phrasesChecked.get(p.text());
+                if (phraseMatches == null) {
+                    phraseMatches = phraseCache.get(p.text());
+                    if (phraseMatches == null) {
+                        phraseMatches = currentPhraseMatcher == null ? List.of() : currentPhraseMatcher.check(p.text());
+                    }
+
+                    phrasesChecked.put(p.text(), phraseMatches);
+                }
+
+                final int first = result.size();
+                for (final RuleMatch m : matches) {
+                    result.add(rebase(m, p.start()));
+                }
+
+                if (!phraseMatches.isEmpty()) {
+                    for (final RuleMatch m : phraseMatches) {
+                        result.add(rebase(m, p.start()));
+                    }
+
+                    result.subList(first, result.size()).sort(Comparator.comparingInt(RuleMatch::getFromPos));
+                }
+            }
+
+            complete = true;
+        } finally {
+            if (!complete) {
+                // Keep everything that finished, and leave the rest running for the next check.
+                cache.putAll(checked);
+                phraseCache.putAll(phrasesChecked);
+                pending.forEach((paragraph, f) -> {
+                    if (completedNormally(f)) {
+                        cache.put(paragraph, f.join());
+                    } else if (!f.isDone()) {
+                        inFlight.put(paragraph, f);
+                    }
+                });
+            }
+        }
+
+        cache = checked;
+        phraseCache = phrasesChecked;
+        return result;
+    }
+
+}
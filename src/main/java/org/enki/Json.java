@@ -0,0 +1,76 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.Collection;
+
+// Just enough JSON writing for the command line and server modes.
+public class Json {
+
+    private Json() {
+        throw new AssertionError("static utility class is not intended to be instantiated");
+    }
+
+    public static @NotNull
+    StringBuilder appendQuoted(@NotNull final StringBuilder b, @NotNull final CharSequence s) {
+        b.append('"');
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"' -> b.append("\\\"");
+                case '\\' -> b.append("\\\\");
+                case '\n' -> b.append("\\n");
+                case '\r' -> b.append("\\r");
+                case '\t' -> b.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        b.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        b.append(c);
+                    }
+                }
+            }
+        }
+
+        return b.append('"');
+    }
+
+    public static @NotNull
+    StringBuilder appendQuoted(@NotNull final StringBuilder b, @NotNull final Collection<? extends CharSequence> l) {
+        b.append('[');
+        boolean first = true;
+        for (final CharSequence s : l) {
+            if (!first) {
+                b.append(',');
+            }
+
+            appendQuoted(b, s);
+            first = false;
+        }
+
+        return b.append(']');
+    }
+
+    // Appends the fields describing a match, without the enclosing braces.
+    public static @NotNull
+    StringBuilder appendMatchFields(@NotNull final StringBuilder b, @NotNull final RuleMatch m) {
+        b.append("\"offset\":").append(m.getFromPos());
+        b.append(",\"length\":").append(m.getToPos() - m.getFromPos());
+        b.append(",\"rule\":");
+        appendQuoted(b, m.getRule().getId());
+        b.append(",\"type\":");
+        appendQuoted(b, m.getType().name());
+        b.append(",\"message\":");
+        appendQuoted(b, App.message(m));
+        b.append(",\"suggestions\":");
+        return appendQuoted(b, m.getSuggestedReplacements());
+    }
+
+    public static @NotNull
+    String quote(@NotNull final CharSequence s) {
+        return appendQuoted(new StringBuilder(), s).toString();
+    }
+
+}
@@ -0,0 +1,174 @@
+package org.enki;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.JLanguageTool;
+import org.languagetool.language.AmericanEnglish;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A bounded pool of JLanguageTool instances. JLanguageTool is not safe for concurrent use, so each check borrows an
+// instance for its duration. Instances are created lazily, up to the pool size, and warmed up before first use.
+public class LanguageToolPool {
+
+    // Checking representative text loads the rules, taggers and dictionaries that a short sentence would not reach.
+    static final String warmUpText = loadWarmUpText();
+    private static final LatencyHistogram checkLatency = Metrics.histogram("grammar check");
+
+    private final int size;
+    private final BlockingQueue<JLanguageTool> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final ExecutorService executor;
+
+    public LanguageToolPool(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        this.size = size;
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(size, r -> {
+            final Thread t = new Thread(r, "LanguageTool " + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static @NotNull
+    String loadWarmUpText() {
+        final URL demo = LanguageToolPool.class.getResource("/demo.txt");
+        if (demo != null) {
+            try {
+                return Resources.toString(demo, Charsets.UTF_8);
+            } catch (final IOException e) {
+                System.err.println(e);
+            }
+        }
+
+        return "This is a short text that is checked to warm up a new instance.";
+    }
+
+    public static int defaultSize() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static @NotNull
+    JLanguageTool newLanguageTool() throws IOException {
+        final JLanguageTool languageTool = new JLanguageTool(new AmericanEnglish());
+        languageTool.check(warmUpText);
+        return languageTool;
+    }
+
+    private @NotNull
+    JLanguageTool borrow() throws IOException {
+        final JLanguageTool available = idle.poll();
+        if (available != null) {
+            return available;
+        }
+
+        if (created.getAndUpdate(n -> n < size ? n + 1 : n) < size) {
+            try {
+                return newLanguageTool();
+            } catch (final IOException | RuntimeException e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+
+        try {
+            return idle.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    public @NotNull
+    List<RuleMatch> check(@NotNull final String text) throws IOException {
+        final JLanguageTool languageTool = borrow();
+        final long start = System.nanoTime();
+        try {
+            return languageTool.check(text);
+        } finally {
+            checkLatency.recordSince(start);
+            idle.add(languageTool);
+        }
+    }
+
+    public @NotNull
+    CompletableFuture<List<RuleMatch>> checkAsync(@NotNull final String text) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return check(text);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    // Creates and warms up every instance in parallel so that the first checks do not pay for it. The returned future
+    // completes when the first instance is ready, which is when checks stop waiting on instance creation.
+    public @NotNull
+    CompletableFuture<Void> warmUp() {
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            executor.execute(() -> {
+                try {
+                    if (created.getAndUpdate(n -> n < size ? n + 1 : n) < size) {
+                        idle.add(newLanguageTool());
+                    }
+
+                    first.complete(null);
+                } catch (final IOException | RuntimeException e) {
+                    created.decrementAndGet();
+                    System.err.println(e);
+                    if (remaining.decrementAndGet() == 0) {
+                        first.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+
+        return first;
+    }
+
+    static <T> T await(@NotNull final Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException u) {
+                throw u.getCause();
+            } else if (cause instanceof IOException i) {
+                throw i;
+            } else if (cause instanceof RuntimeException r) {
+                throw r;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+}
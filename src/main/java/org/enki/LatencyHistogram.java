@@ -0,0 +1,135 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// A histogram of durations that can be recorded from any thread without locking. Buckets are log-linear: each power of
+// two is split into subBuckets equal parts, so a percentile is reported to within 1/subBuckets of its true value, and
+// the whole range of a long fits in a few hundred counters. Recording is a bucket computation and three atomic updates,
+// cheap enough to leave on everywhere.
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int subBucketBits = 3;
+    private static final int subBuckets = 1 << subBucketBits;
+    private static final int bucketCount = (Long.SIZE - subBucketBits + 1) * subBuckets;
+
+    public record Summary(long count, long totalNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+    }
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(@NotNull final String name) {
+        this.name = name;
+    }
+
+    public @NotNull
+    String name() {
+        return name;
+    }
+
+    static int bucket(final long nanos) {
+        if (nanos < subBuckets) {
+            return (int) Math.max(0, nanos);
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        final int subBucket = (int) (nanos >>> (exponent - subBucketBits)) & (subBuckets - 1);
+        return (exponent - subBucketBits + 1) * subBuckets + subBucket;
+    }
+
+    // The largest duration that falls in the bucket.
+    static long upperBound(final int bucket) {
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+
+        final int exponent = bucket / subBuckets + subBucketBits - 1;
+        final long lower = (long) (subBuckets + bucket % subBuckets) << (exponent - subBucketBits);
+        return lower + (1L << (exponent - subBucketBits)) - 1;
+    }
+
+    public void record(final long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Records the time since start, a value of System.nanoTime().
+    public void recordSince(final long start) {
+        record(System.nanoTime() - start);
+    }
+
+    // The counters are read one at a time while recording goes on, so a summary can be off by the durations recorded
+    // while it was taken.
+    public @NotNull
+    Summary summary() {
+        final long[] snapshot = new long[bucketCount];
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        final long max = maxNanos.get();
+        return new Summary(total, totalNanos.sum(), percentile(snapshot, total, 0.50, max),
+                percentile(snapshot, total, 0.99, max), max);
+    }
+
+    private static long percentile(@NotNull final long[] snapshot, final long total, final double quantile,
+                                   final long max) {
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+
+        return 0;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return millis(Math.round(summary().meanNanos()));
+    }
+
+    @Override
+    public double getP50Millis() {
+        return millis(summary().p50Nanos());
+    }
+
+    @Override
+    public double getP99Millis() {
+        return millis(summary().p99Nanos());
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return millis(maxNanos.get());
+    }
+
+}
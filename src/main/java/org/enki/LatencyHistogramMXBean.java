@@ -0,0 +1,16 @@
+package org.enki;
+
+// How a LatencyHistogram appears over JMX, for example in JConsole or VisualVM.
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+}
@@ -0,0 +1,375 @@
+package org.enki;
+
+import com.google.common.collect.ImmutableMap;
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.Exc;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+// A read-only, memory-mapped table of every WordNet lemma with its synset offsets for each part of speech, plus the
+// morphological exception lists. Lookups are a binary search over the mapped file, and IndexWords are built directly
+// from the stored offsets, so no dictionary files are read until a sense is actually needed.
+//
+// File layout (big-endian):
+//   header:     magic, version, entry count, exception count, offset count, string bytes
+//   entries:    lemma string offset, lemma string length, then (first offset, offset count) for each part of speech
+//   exceptions: part of speech, form string offset, form string length, base string offset, base string length
+//   offsets:    synset offsets as longs
+//   strings:    UTF-8 bytes
+// Entries are sorted by the unsigned bytes of the lemma, exceptions by part of speech and then form.
+public class Lexicon {
+
+    public static final String fileName = "lexicon-wn31-v1.bin";
+
+    private static final int magic = 0x57574c58;
+    private static final int version = 1;
+    private static final int headerSize = 6 * Integer.BYTES;
+    private static final List<POS> parts = POS.getAllPOS();
+    private static final int entrySize = (2 + 2 * parts.size()) * Integer.BYTES;
+    private static final int exceptionSize = 5 * Integer.BYTES;
+
+    // WordNet's suffix detachment rules, in the order the default extJWNL morphological processor tries them.
+    private static final Map<POS, String[][]> suffixRules = ImmutableMap.of(
+            POS.NOUN, new String[][]{{"s", ""}, {"ses", "s"}, {"xes", "x"}, {"zes", "z"}, {"ches", "ch"},
+                    {"shes", "sh"}, {"men", "man"}, {"ies", "y"}},
+            POS.VERB, new String[][]{{"s", ""}, {"ies", "y"}, {"es", "e"}, {"es", ""}, {"ed", "e"}, {"ed", ""},
+                    {"ing", "e"}, {"ing", ""}},
+            POS.ADJECTIVE, new String[][]{{"er", ""}, {"est", ""}, {"er", "e"}, {"est", "e"}},
+            POS.ADVERB, new String[][]{}
+    );
+
+    private final Dictionary dictionary;
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int exceptionCount;
+    private final int exceptionsStart;
+    private final int offsetsStart;
+    private final int stringsStart;
+
+    private Lexicon(@NotNull final Dictionary dictionary, @NotNull final ByteBuffer buffer) throws IOException {
+        this.dictionary = Objects.requireNonNull(dictionary);
+        this.buffer = buffer;
+        if (buffer.capacity() < headerSize || buffer.getInt(0) != magic || buffer.getInt(4) != version) {
+            throw new IOException("not a lexicon file");
+        }
+
+        entryCount = buffer.getInt(8);
+        exceptionCount = buffer.getInt(12);
+        final int offsetCount = buffer.getInt(16);
+        final int stringBytes = buffer.getInt(20);
+        exceptionsStart = headerSize + entryCount * entrySize;
+        offsetsStart = exceptionsStart + exceptionCount * exceptionSize;
+        stringsStart = offsetsStart + offsetCount * Long.BYTES;
+        if (buffer.capacity() != stringsStart + stringBytes) {
+            throw new IOException("truncated lexicon file");
+        }
+    }
+
+    public static @NotNull
+    Lexicon open(@NotNull final Dictionary dictionary, @NotNull final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file)) {
+            return new Lexicon(dictionary, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static @NotNull
+    Lexicon openOrBuild(@NotNull final Dictionary dictionary, @NotNull final Path file) throws IOException {
+        if (Files.exists(file)) {
+            try {
+                return open(dictionary, file);
+            } catch (final IOException e) {
+                System.err.println("rebuilding " + file + ": " + e.getMessage());
+            }
+        }
+
+        // The build walks all of WordNet, so it gets a dictionary of its own rather than the caller's shared one.
+        try {
+            build(Dictionary.getDefaultResourceInstance(), file);
+        } catch (final JWNLException e) {
+            throw new IOException(e);
+        }
+
+        return open(dictionary, file);
+    }
+
+    private record ExceptionRow(int part, byte[] form, byte[] base) {
+    }
+
+    public static void build(@NotNull final Dictionary dictionary, @NotNull final Path file)
+            throws IOException, JWNLException {
+        final Map<String, long[][]> lemmas = new HashMap<>();
+        final List<ExceptionRow> exceptions = new ArrayList<>();
+        for (int part = 0; part < parts.size(); part++) {
+            final POS pos = parts.get(part);
+            final Iterator<IndexWord> words = dictionary.getIndexWordIterator(pos);
+            while (words.hasNext()) {
+                final IndexWord w = words.next();
+                lemmas.computeIfAbsent(w.getLemma(), x -> new long[parts.size()][])[part] = w.getSynsetOffsets();
+            }
+
+            final Iterator<Exc> excs = dictionary.getExceptionIterator(pos);
+            while (excs.hasNext()) {
+                final Exc exc = excs.next();
+                for (final String base : exc.getExceptions()) {
+                    exceptions.add(new ExceptionRow(part, utf8(exc.getLemma()), utf8(base)));
+                }
+            }
+        }
+
+        final List<byte[]> sortedLemmas = new ArrayList<>();
+        final Map<byte[], long[][]> offsetsByLemma = new HashMap<>();
+        lemmas.forEach((lemma, offsets) -> {
+            final byte[] bytes = utf8(lemma);
+            sortedLemmas.add(bytes);
+            offsetsByLemma.put(bytes, offsets);
+        });
+        sortedLemmas.sort(Arrays::compareUnsigned);
+        // List.sort is stable, so the base forms of an exception stay in dictionary order.
+        exceptions.sort(Comparator.comparingInt(ExceptionRow::part)
+                .thenComparing(ExceptionRow::form, Arrays::compareUnsigned));
+
+        int offsetCount = 0;
+        for (final long[][] offsets : lemmas.values()) {
+            for (final long[] o : offsets) {
+                offsetCount += o == null ? 0 : o.length;
+            }
+        }
+
+        final Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), fileName, ".tmp");
+        try (final DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            final List<byte[]> strings = new ArrayList<>();
+            final int[] stringBytes = {0};
+            final ToIntFunction<byte[]> intern = bytes -> {
+                final int offset = stringBytes[0];
+                strings.add(bytes);
+                stringBytes[0] += bytes.length;
+                return offset;
+            };
+
+            final int[] lemmaOffsets = sortedLemmas.stream().mapToInt(intern).toArray();
+            final int[][] exceptionOffsets = exceptions.stream()
+                    .map(e -> new int[]{intern.applyAsInt(e.form()), intern.applyAsInt(e.base())})
+                    .toArray(int[][]::new);
+
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(sortedLemmas.size());
+            out.writeInt(exceptions.size());
+            out.writeInt(offsetCount);
+            out.writeInt(stringBytes[0]);
+
+            int nextOffset = 0;
+            for (int i = 0; i < sortedLemmas.size(); i++) {
+                final byte[] lemma = sortedLemmas.get(i);
+                out.writeInt(lemmaOffsets[i]);
+                out.writeInt(lemma.length);
+                for (final long[] o : offsetsByLemma.get(lemma)) {
+                    final int count = o == null ? 0 : o.length;
+                    out.writeInt(nextOffset);
+                    out.writeInt(count);
+                    nextOffset += count;
+                }
+            }
+
+            for (int i = 0; i < exceptions.size(); i++) {
+                final ExceptionRow e = exceptions.get(i);
+                out.writeInt(e.part());
+                out.writeInt(exceptionOffsets[i][0]);
+                out.writeInt(e.form().length);
+                out.writeInt(exceptionOffsets[i][1]);
+                out.writeInt(e.base().length);
+            }
+
+            for (final byte[] lemma : sortedLemmas) {
+                for (final long[] o : offsetsByLemma.get(lemma)) {
+                    if (o != null) {
+                        for (final long offset : o) {
+                            out.writeLong(offset);
+                        }
+                    }
+                }
+            }
+
+            for (final byte[] s : strings) {
+                out.write(s);
+            }
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static @NotNull
+    byte[] utf8(@NotNull final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int compareString(final int offset, final int length, @NotNull final byte[] key) {
+        final int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            final int c = Integer.compare(buffer.get(stringsStart + offset + i) & 0xff, key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+
+        return Integer.compare(length, key.length);
+    }
+
+    private int findEntry(@NotNull final byte[] lemma) {
+        int lo = 0;
+        int hi = entryCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int base = headerSize + mid * entrySize;
+            final int c = compareString(buffer.getInt(base), buffer.getInt(base + 4), lemma);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    private @Nullable
+    IndexWord indexWord(@NotNull final String lemma, final int part) throws JWNLException {
+        final int entry = findEntry(utf8(lemma));
+        if (entry == -1) {
+            return null;
+        }
+
+        final int base = headerSize + entry * entrySize + (2 + 2 * part) * Integer.BYTES;
+        final int first = buffer.getInt(base);
+        final int count = buffer.getInt(base + 4);
+        if (count == 0) {
+            return null;
+        }
+
+        final long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = buffer.getLong(offsetsStart + (first + i) * Long.BYTES);
+        }
+
+        return new IndexWord(dictionary, lemma, parts.get(part), offsets);
+    }
+
+    private int compareException(final int row, final int part, @NotNull final byte[] form) {
+        final int base = exceptionsStart + row * exceptionSize;
+        final int c = Integer.compare(buffer.getInt(base), part);
+        return c != 0 ? c : compareString(buffer.getInt(base + 4), buffer.getInt(base + 8), form);
+    }
+
+    private @NotNull
+    List<String> exceptions(final int part, @NotNull final String lemma) {
+        final byte[] form = utf8(lemma);
+        int lo = 0;
+        int hi = exceptionCount;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (compareException(mid, part, form) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        final List<String> bases = new ArrayList<>();
+        for (int row = lo; row < exceptionCount && compareException(row, part, form) == 0; row++) {
+            final int base = exceptionsStart + row * exceptionSize;
+            final byte[] bytes = new byte[buffer.getInt(base + 16)];
+            buffer.get(stringsStart + buffer.getInt(base + 12), bytes);
+            bases.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return bases;
+    }
+
+    private @Nullable
+    IndexWord baseForm(final int part, @NotNull final String lemma) throws JWNLException {
+        for (final String base : exceptions(part, lemma)) {
+            final IndexWord w = indexWord(base, part);
+            if (w != null) {
+                return w;
+            }
+        }
+
+        for (final String[] rule : suffixRules.get(parts.get(part))) {
+            if (lemma.length() > rule[0].length() && lemma.endsWith(rule[0])) {
+                final IndexWord w =
+                        indexWord(lemma.substring(0, lemma.length() - rule[0].length()) + rule[1], part);
+                if (w != null) {
+                    return w;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    public @NotNull
+    Map<POS, IndexWord> lookup(@NotNull final String s) {
+        final String lemma = s.trim().toLowerCase().replace('_', ' ');
+        final ImmutableMap.Builder<POS, IndexWord> m = new ImmutableMap.Builder<>();
+        if (lemma.isEmpty()) {
+            return m.build();
+        }
+
+        final boolean compound = lemma.indexOf(' ') >= 0 || lemma.indexOf('-') >= 0;
+        try {
+            for (int part = 0; part < parts.size(); part++) {
+                IndexWord w = indexWord(lemma, part);
+                if (w == null) {
+                    w = baseForm(part, lemma);
+                }
+
+                // Compounds can need the tokenizing steps of the full morphological processor.
+                if (w == null && compound) {
+                    w = dictionary.lookupIndexWord(parts.get(part), lemma);
+                }
+
+                if (w != null) {
+                    m.put(parts.get(part), w);
+                }
+            }
+        } catch (final JWNLException e) {
+            throw new AssertionError(e);
+        }
+
+        return m.build();
+    }
+
+    public @NotNull
+    List<IndexWord> lookupAsList(@NotNull final String s) {
+        return App.sortedWords(lookup(s));
+    }
+
+}
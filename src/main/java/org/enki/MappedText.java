@@ -0,0 +1,134 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+// A text file of any size, memory-mapped read-only and decoded a page at a time. Pages are about pageSize bytes and
+// end at a line break where there is one nearby, so they can be displayed and checked on their own. Page boundaries
+// are found by scanning near a multiple of pageSize, so no index of the file is ever built, and memory use depends on
+// how many pages are decoded at once, not on the size of the file.
+//
+// Finding a line break in the bytes only works for charsets that encode it as the single byte '\n' and never use that
+// byte otherwise, which is true of UTF-8 and of the single-byte charsets.
+public class MappedText implements Closeable {
+
+    public static final int pageSize = 1 << 16;
+    // A single mapping cannot be larger than 2 GiB, so the file is mapped in regions.
+    private static final long regionSize = 1L << 30;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long size;
+    private final MappedByteBuffer[] regions;
+
+    private MappedText(@NotNull final FileChannel channel, @NotNull final Charset charset) throws IOException {
+        this.channel = channel;
+        this.charset = charset;
+        size = channel.size();
+        regions = new MappedByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+        for (int i = 0; i < regions.length; i++) {
+            final long start = i * regionSize;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+        }
+    }
+
+    public static boolean isSupported(@NotNull final Charset charset) {
+        final byte[] newline = "\n".getBytes(charset);
+        return newline.length == 1 && newline[0] == '\n' &&
+                (charset.equals(StandardCharsets.UTF_8) || charset.newEncoder().maxBytesPerChar() == 1);
+    }
+
+    public static @NotNull
+    MappedText open(@NotNull final Path path, @NotNull final Charset charset) throws IOException {
+        if (!isSupported(charset)) {
+            throw new IOException("the viewer cannot page through " + charset + " text; use UTF-8 or a single-byte " +
+                    "charset");
+        }
+
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedText(channel, Objects.requireNonNull(charset));
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int pageCount() {
+        return (int) Math.max(1, (size + pageSize - 1) / pageSize);
+    }
+
+    private byte byteAt(final long position) {
+        return regions[(int) (position / regionSize)].get((int) (position % regionSize));
+    }
+
+    // The byte offset at which a page starts: just after the first line break at or after the nominal start, or, if
+    // there is none within a page, the first character boundary there.
+    public long pageStart(final int page) {
+        final long nominal = (long) page * pageSize;
+        if (page <= 0) {
+            return 0;
+        } else if (nominal >= size) {
+            return size;
+        }
+
+        final long limit = Math.min(nominal + pageSize, size);
+        for (long i = nominal; i < limit; i++) {
+            if (byteAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+
+        long i = nominal;
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            // In UTF-8, bytes of the form 10xxxxxx continue a character.
+            while (i < size && (byteAt(i) & 0xC0) == 0x80) {
+                i++;
+            }
+        }
+
+        return i;
+    }
+
+    // Decodes the given pages. Malformed input is shown as replacement characters rather than failing the view.
+    public @NotNull
+    String decode(final int firstPage, final int pages) throws IOException {
+        final long start = pageStart(firstPage);
+        final long end = pageStart(firstPage + pages);
+        final byte[] bytes = new byte[(int) (end - start)];
+        for (long position = start; position < end; ) {
+            final MappedByteBuffer region = regions[(int) (position / regionSize)];
+            final int offset = (int) (position % regionSize);
+            final int n = (int) Math.min(end - position, region.capacity() - offset);
+            region.get(offset, bytes, (int) (position - start), n);
+            position += n;
+        }
+
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(ByteBuffer.wrap(bytes))
+                .toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import java.awt.*;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Keeps the highlights of the visible part of a text component in sync with a set of RuleMatches.
+public class MatchHighlighter {
+
+    private record Key(int from, int to, @NotNull RuleMatch.Type type) {
+    }
+
+    private static final Map<RuleMatch.Type, Highlighter.HighlightPainter> painters = new EnumMap<>(RuleMatch.Type.class);
+
+    static {
+        for (final RuleMatch.Type type : RuleMatch.Type.values()) {
+            painters.put(type, switch (type) {
+                case Hint -> new DefaultHighlighter.DefaultHighlightPainter(Color.LIGHT_GRAY);
+                case UnknownWord -> new DefaultHighlighter.DefaultHighlightPainter(Color.RED);
+                case Other -> new DefaultHighlighter.DefaultHighlightPainter(Color.YELLOW);
+            });
+        }
+    }
+
+    private static final LatencyHistogram refreshLatency = Metrics.histogram("highlighting");
+
+    private final JTextComponent component;
+    private final Map<Highlighter.Highlight, RuleMatch.Type> installed = new HashMap<>();
+    private MatchIndex matches = MatchIndex.EMPTY;
+
+    public MatchHighlighter(@NotNull final JTextComponent component) {
+        this.component = Objects.requireNonNull(component);
+    }
+
+    public void track(@NotNull final JViewport viewport) {
+        viewport.addChangeListener(e -> refresh());
+    }
+
+    public void setMatches(@NotNull final MatchIndex matches) {
+        this.matches = Objects.requireNonNull(matches);
+        refresh();
+    }
+
+    private static @NotNull
+    Key key(@NotNull final RuleMatch m) {
+        return new Key(m.getFromPos(), m.getToPos(), m.getType());
+    }
+
+    public void refresh() {
+        final long startTime = System.nanoTime();
+        final Rectangle visible = component.getVisibleRect();
+        final int start = component.viewToModel2D(visible.getLocation());
+        final int end = component.viewToModel2D(new Point(visible.x + visible.width, visible.y + visible.height));
+
+        final Set<Key> wanted = new HashSet<>();
+        if (start >= 0 && end >= 0) {
+            matches.forEachOverlapping(start, end, i -> wanted.add(key(matches.get(i))));
+        }
+
+        // Installed highlights follow edits, so compare them by where they are now rather than where they started.
+        final Highlighter h = component.getHighlighter();
+        final Iterator<Map.Entry<Highlighter.Highlight, RuleMatch.Type>> i = installed.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<Highlighter.Highlight, RuleMatch.Type> e = i.next();
+            final Highlighter.Highlight highlight = e.getKey();
+            if (!wanted.remove(new Key(highlight.getStartOffset(), highlight.getEndOffset(), e.getValue()))) {
+                h.removeHighlight(highlight);
+                i.remove();
+            }
+        }
+
+        final int length = component.getDocument().getLength();
+        for (final Key k : wanted) {
+            if (k.to() > length) {
+                continue;
+            }
+
+            try {
+                final Object tag = h.addHighlight(k.from(), k.to(), painters.get(k.type()));
+                installed.put((Highlighter.Highlight) tag, k.type());
+            } catch (final BadLocationException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        refreshLatency.recordSince(startTime);
+    }
+
+}
@@ -0,0 +1,113 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// An interval index over the ranges of a list of RuleMatches. The matches are sorted by start position and the sorted
+// array is treated as an implicit balanced search tree in which each node also records the greatest end position in
+// its subtree. Ranges are inclusive at both ends, as is the caret test in the editor.
+public class MatchIndex {
+
+    public static final MatchIndex EMPTY = new MatchIndex(List.of());
+
+    private final List<RuleMatch> matches;
+    private final int[] order;
+    private final int[] from;
+    private final int[] to;
+    private final int[] maxTo;
+
+    public MatchIndex(@NotNull final List<RuleMatch> matches) {
+        this.matches = List.copyOf(matches);
+        final int size = matches.size();
+        order = IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingInt(i -> matches.get(i).getFromPos()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        from = new int[size];
+        to = new int[size];
+        maxTo = new int[size];
+        for (int i = 0; i < size; i++) {
+            final RuleMatch m = matches.get(order[i]);
+            from[i] = m.getFromPos();
+            to[i] = m.getToPos();
+        }
+
+        computeMaxTo(0, size);
+    }
+
+    private int computeMaxTo(final int lo, final int hi) {
+        if (lo >= hi) {
+            return Integer.MIN_VALUE;
+        }
+
+        final int mid = (lo + hi) >>> 1;
+        maxTo[mid] = Math.max(to[mid], Math.max(computeMaxTo(lo, mid), computeMaxTo(mid + 1, hi)));
+        return maxTo[mid];
+    }
+
+    public @NotNull
+    List<RuleMatch> matches() {
+        return matches;
+    }
+
+    public @NotNull
+    RuleMatch get(final int index) {
+        return matches.get(index);
+    }
+
+    public int size() {
+        return matches.size();
+    }
+
+    // Reports the indices of all matches that overlap the inclusive range [start, end], in no particular order.
+    public void forEachOverlapping(final int start, final int end, @NotNull final IntConsumer consumer) {
+        forEachOverlapping(0, from.length, start, end, consumer);
+    }
+
+    private void forEachOverlapping(final int lo, final int hi, final int start, final int end,
+                                    @NotNull final IntConsumer consumer) {
+        if (lo >= hi) {
+            return;
+        }
+
+        final int mid = (lo + hi) >>> 1;
+        if (maxTo[mid] < start) {
+            return;
+        }
+
+        forEachOverlapping(lo, mid, start, end, consumer);
+        if (from[mid] > end) {
+            return;
+        }
+
+        if (to[mid] >= start) {
+            consumer.accept(order[mid]);
+        }
+
+        forEachOverlapping(mid + 1, hi, start, end, consumer);
+    }
+
+    public void forEachCovering(final int position, @NotNull final IntConsumer consumer) {
+        forEachOverlapping(position, position, consumer);
+    }
+
+    // Returns the index of the first match in list order that covers position, or -1 if there is none.
+    public int first(final int position) {
+        final int[] result = {Integer.MAX_VALUE};
+        forEachCovering(position, i -> result[0] = Math.min(result[0], i));
+        return result[0] == Integer.MAX_VALUE ? -1 : result[0];
+    }
+
+    // Returns the index of the last match in list order that covers position, or -1 if there is none.
+    public int last(final int position) {
+        final int[] result = {-1};
+        forEachCovering(position, i -> result[0] = Math.max(result[0], i));
+        return result[0];
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.rules.RuleMatch;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.Objects;
+
+// The result of a grammar check as the error list shows it: the matches, their index and the label of each, all made
+// from the text that was checked when the check finished. The contents never change and never refer back to the
+// document, so the list can be painted, a row at a time, without reading the document.
+public class MatchList extends AbstractListModel<RuleMatch> {
+
+    public static final MatchList EMPTY = new MatchList(MatchIndex.EMPTY, new String[0]);
+
+    private final MatchIndex index;
+    private final String[] labels;
+
+    private MatchList(@NotNull final MatchIndex index, @NotNull final String[] labels) {
+        this.index = index;
+        this.labels = labels;
+    }
+
+    public static @NotNull
+    MatchList of(@NotNull final List<RuleMatch> matches, @NotNull final CharSequence text) {
+        final MatchIndex index = new MatchIndex(matches);
+        final String[] labels = new String[index.size()];
+        for (int i = 0; i < labels.length; i++) {
+            final RuleMatch m = index.get(i);
+            labels[i] = region(text, m).trim() + ": " + App.message(m);
+        }
+
+        return new MatchList(index, labels);
+    }
+
+    private static @NotNull
+    String region(@NotNull final CharSequence text, @NotNull final RuleMatch m) {
+        final int from = Math.min(Math.max(0, m.getFromPos()), text.length());
+        final int to = Math.min(Math.max(from, m.getToPos()), text.length());
+        return text.subSequence(from, to).toString();
+    }
+
+    public @NotNull
+    MatchIndex index() {
+        return index;
+    }
+
+    public @NotNull
+    String label(final int i) {
+        return labels[i];
+    }
+
+    @Override
+    public int getSize() {
+        return labels.length;
+    }
+
+    @Override
+    public RuleMatch getElementAt(final int i) {
+        return index.get(i);
+    }
+
+    // Renders the precomputed labels of a JList whose model is a MatchList.
+    public static class Renderer extends DefaultListCellRenderer {
+
+        @Override
+        public Component getListCellRendererComponent(final JList<?> list, final Object value, final int i,
+                                                      final boolean isSelected, final boolean cellHasFocus) {
+            final String label = list.getModel() instanceof MatchList m && i >= 0 && i < m.getSize() ? m.label(i) : "";
+            return super.getListCellRendererComponent(list, label, i, isSelected, cellHasFocus);
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The latency histograms of the main steps, by name. They are published as MXBeans under org.enki:type=Latency once
+// publish() is called. Publishing starts the platform MBean server, which is left off the startup path.
+public class Metrics {
+
+    private static final Map<String, LatencyHistogram> histograms = new TreeMap<>();
+    private static MBeanServer server;
+
+    private Metrics() {
+    }
+
+    public static synchronized @NotNull
+    LatencyHistogram histogram(@NotNull final String name) {
+        return histograms.computeIfAbsent(name, x -> {
+            final LatencyHistogram h = new LatencyHistogram(x);
+            if (server != null) {
+                register(h);
+            }
+
+            return h;
+        });
+    }
+
+    public static synchronized @NotNull
+    Map<String, LatencyHistogram> histograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public static synchronized void publish() {
+        if (server == null) {
+            server = ManagementFactory.getPlatformMBeanServer();
+            histograms.values().forEach(Metrics::register);
+        }
+    }
+
+    private static void register(@NotNull final LatencyHistogram h) {
+        try {
+            server.registerMBean(h, new ObjectName("org.enki:type=Latency,name=" + ObjectName.quote(h.name())));
+        } catch (final JMException e) {
+            System.err.println("cannot publish " + h.name() + ": " + e);
+        }
+    }
+
+}
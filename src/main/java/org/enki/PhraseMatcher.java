@@ -0,0 +1,262 @@
+package org.enki;
+
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.data.Word;
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.rules.Rule;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.stream.Collectors;
+
+// Finds the wordy phrases from WordNetUtilities.phrasesToWords in text. The phrases are compiled into an Aho-Corasick
+// automaton over normalized words, so a single pass over the text finds every occurrence of every phrase, however many
+// phrases there are.
+public class PhraseMatcher {
+
+    public record Hit(int start, int end, @NotNull String phrase) {
+    }
+
+    private static final Rule rule = new Rule() {
+
+        @Override
+        public String getId() {
+            return "WORDY_PHRASE";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Phrases that have a more concise synonym";
+        }
+
+        @Override
+        public RuleMatch[] match(final AnalyzedSentence sentence) {
+            return new RuleMatch[0];
+        }
+
+    };
+
+    private final Map<String, Synset> phrasesToWords;
+    private final String[] phrases;
+    private final Map<String, Integer> tokenIds = new HashMap<>();
+    // Transitions of the trie, keyed by state and token id.
+    private final Map<Long, Integer> transitions = new HashMap<>();
+    private final int[] failure;
+    // The phrase ending at each state, or -1.
+    private final int[] output;
+    // The nearest state reachable through failure links that has an output, or -1.
+    private final int[] outputLink;
+    private final int[] phraseLengths;
+    private final int maxPhraseLength;
+
+    public PhraseMatcher(@NotNull final Map<String, Synset> phrasesToWords) {
+        this.phrasesToWords = Objects.requireNonNull(phrasesToWords);
+        phrases = phrasesToWords.keySet().toArray(new String[0]);
+        phraseLengths = new int[phrases.length];
+
+        final List<Integer> outputs = new ArrayList<>();
+        outputs.add(-1);
+        int states = 1;
+        int longest = 0;
+        for (int i = 0; i < phrases.length; i++) {
+            final String[] tokens = phrases[i].split(" ");
+            // A phrase with a word that has no letters, like "catch 22", cannot be matched word for word.
+            if (Arrays.stream(tokens).anyMatch(x -> normalize(x, 0, x.length()).isEmpty())) {
+                continue;
+            }
+
+            int state = 0;
+            for (final String token : tokens) {
+                final int id = tokenIds.computeIfAbsent(normalize(token, 0, token.length()), x -> tokenIds.size());
+                final Integer next = transitions.get(key(state, id));
+                if (next == null) {
+                    transitions.put(key(state, id), states);
+                    outputs.add(-1);
+                    state = states++;
+                } else {
+                    state = next;
+                }
+            }
+
+            if (outputs.get(state) == -1) {
+                outputs.set(state, i);
+            }
+
+            phraseLengths[i] = tokens.length;
+            longest = Math.max(longest, tokens.length);
+        }
+
+        maxPhraseLength = longest;
+        output = outputs.stream().mapToInt(Integer::intValue).toArray();
+        failure = new int[states];
+        outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        computeFailureLinks(states);
+    }
+
+    private static long key(final int state, final int token) {
+        return ((long) state << 32) | token;
+    }
+
+    private void computeFailureLinks(final int states) {
+        final List<List<int[]>> edges = new ArrayList<>();
+        for (int i = 0; i < states; i++) {
+            edges.add(new ArrayList<>());
+        }
+
+        transitions.forEach((k, target) -> edges.get((int) (k >>> 32)).add(new int[]{(int) (long) k, target}));
+
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (final int[] edge : edges.get(0)) {
+            failure[edge[1]] = 0;
+            queue.add(edge[1]);
+        }
+
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            for (final int[] edge : edges.get(state)) {
+                final int token = edge[0];
+                final int target = edge[1];
+                int f = failure[state];
+                while (f != 0 && !transitions.containsKey(key(f, token))) {
+                    f = failure[f];
+                }
+
+                final Integer next = transitions.get(key(f, token));
+                failure[target] = next == null || next == target ? 0 : next;
+                outputLink[target] = output[failure[target]] != -1 ? failure[target] : outputLink[failure[target]];
+                queue.add(target);
+            }
+        }
+    }
+
+    private static @NotNull
+    String normalize(@NotNull final CharSequence s, final int start, final int end) {
+        final StringBuilder b = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (Character.isLetter(c)) {
+                b.append(Character.toLowerCase(c));
+            }
+        }
+
+        return b.toString();
+    }
+
+    private int step(int state, final int token) {
+        while (true) {
+            final Integer next = transitions.get(key(state, token));
+            if (next != null) {
+                return next;
+            } else if (state == 0) {
+                return 0;
+            }
+
+            state = failure[state];
+        }
+    }
+
+    // Whether a word ends a sentence, looking past closing quotes and brackets, as in 'afternoon."'.
+    private static boolean endsSentence(@NotNull final CharSequence s, final int start, int end) {
+        while (end > start && "\"')]}\u2019\u201d".indexOf(s.charAt(end - 1)) >= 0) {
+            end--;
+        }
+
+        return end > start && ".!?\u2026".indexOf(s.charAt(end - 1)) >= 0;
+    }
+
+    // Scans the text once, word by word. Punctuation within a word is ignored, so "afternoon," still ends a phrase, but
+    // a hit covers only the letters from the first to the last of its words, leaving out attached punctuation. A phrase
+    // does not run on past the end of a sentence.
+    public @NotNull
+    List<Hit> find(@NotNull final CharSequence text) {
+        final List<Hit> hits = new ArrayList<>();
+        if (maxPhraseLength == 0) {
+            return hits;
+        }
+
+        // Offsets of the first letters of the most recent words, indexed by word number modulo the longest phrase
+        // length.
+        final int[] starts = new int[maxPhraseLength];
+        final int length = text.length();
+        int state = 0;
+        int words = 0;
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+
+            final int start = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+
+            if (start == i) {
+                break;
+            }
+
+            int firstLetter = start;
+            while (firstLetter < i && !Character.isLetter(text.charAt(firstLetter))) {
+                firstLetter++;
+            }
+
+            int lastLetterEnd = i;
+            while (lastLetterEnd > firstLetter && !Character.isLetter(text.charAt(lastLetterEnd - 1))) {
+                lastLetterEnd--;
+            }
+
+            final Integer id = tokenIds.get(normalize(text, start, i));
+            state = id == null ? 0 : step(state, id);
+            starts[words % maxPhraseLength] = firstLetter;
+            words++;
+
+            for (int s = output[state] != -1 ? state : outputLink[state]; s != -1; s = outputLink[s]) {
+                final int phrase = output[s];
+                final int first = words - phraseLengths[phrase];
+                hits.add(new Hit(starts[first % maxPhraseLength], lastLetterEnd, phrases[phrase]));
+            }
+
+            if (endsSentence(text, start, i)) {
+                state = 0;
+            }
+        }
+
+        return hits;
+    }
+
+    private static @NotNull
+    List<String> alternatives(@NotNull final Synset synset) {
+        return synset.getWords().stream()
+                .map(Word::getLemma)
+                .filter(x -> x.indexOf(' ') == -1 && x.chars().noneMatch(Character::isUpperCase))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    public @NotNull
+    List<RuleMatch> check(@NotNull final CharSequence text) {
+        final List<RuleMatch> matches = new ArrayList<>();
+        for (final Hit hit : find(text)) {
+            final List<String> alternatives = alternatives(phrasesToWords.get(hit.phrase()));
+            final String message = "Consider a more concise alternative: " + alternatives.stream()
+                    .map(x -> "<suggestion>" + x + "</suggestion>")
+                    .collect(Collectors.joining(", "));
+            final RuleMatch m = new RuleMatch(rule, null, hit.start(), hit.end(), message);
+            m.setType(RuleMatch.Type.Hint);
+            m.setSuggestedReplacements(alternatives);
+            matches.add(m);
+        }
+
+        return matches;
+    }
+
+}
@@ -0,0 +1,593 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+// Document content stored as a piece table over immutable buffers, so an edit never moves text and a snapshot is a
+// copy-on-write reference to the piece arrays.
+//
+// Positions are kept relative to a virtual gap at the most recent edit, as GapContent keeps them, so an edit only
+// adjusts the positions between it and the previous edit. They follow edits like StringContent's.
+public class PieceTableContent implements AbstractDocument.Content {
+
+    private static final int blockSize = 1 << 16;
+    private static final char[] newline = {'\n'};
+
+    // Shared with snapshots, so copied before being modified if a snapshot was taken.
+    private char[][] buffers = new char[8][];
+    private int[] starts = new int[8];
+    private int[] lengths = new int[8];
+    private int[] offsets = new int[8];
+    private int count;
+    private int length;
+    private boolean shared;
+
+    // The append-only buffer that typed text goes into. A full block is left alone and a new one started.
+    private char[] block = new char[blockSize];
+    private int blockUsed;
+
+    private static final class Mark extends WeakReference<StickyPosition> {
+
+        long raw;
+        boolean dead;
+
+        Mark(@NotNull final StickyPosition position, @NotNull final ReferenceQueue<StickyPosition> queue,
+             final long raw) {
+            super(position, queue);
+            this.raw = raw;
+        }
+
+    }
+
+    private final class StickyPosition implements Position {
+
+        private Mark mark;
+
+        @Override
+        public int getOffset() {
+            return offset(mark.raw);
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+
+    }
+
+    // Marks, sorted by raw value. A mark before the gap has the raw value of its offset; a mark after it has its offset
+    // plus the gap length.
+    private Mark[] marks = new Mark[16];
+    private int markCount;
+    private int deadMarks;
+    private final ReferenceQueue<StickyPosition> queue = new ReferenceQueue<>();
+    private long gapStart = 1;
+    private long gapLength = 1L << 40;
+
+    public PieceTableContent() {
+        buffers[0] = newline;
+        lengths[0] = 1;
+        count = 1;
+        length = 1;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    private int findPiece(final int offset) {
+        return findPiece(offsets, count, offset);
+    }
+
+    private static int findPiece(@NotNull final int[] offsets, final int count, final int offset) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void unshare(final int capacity) {
+        if (shared || capacity > buffers.length) {
+            final int n = Math.max(capacity, shared ? buffers.length : buffers.length * 2);
+            buffers = Arrays.copyOf(buffers, n);
+            starts = Arrays.copyOf(starts, n);
+            lengths = Arrays.copyOf(lengths, n);
+            offsets = Arrays.copyOf(offsets, n);
+            shared = false;
+        }
+    }
+
+    // Replaces the pieces [from, to) with n pieces, which the caller then fills in with setPiece and passes to reindex.
+    private void openPieces(final int from, final int to, final int n) {
+        unshare(count - (to - from) + n);
+        final int tail = count - to;
+        System.arraycopy(buffers, to, buffers, from + n, tail);
+        System.arraycopy(starts, to, starts, from + n, tail);
+        System.arraycopy(lengths, to, lengths, from + n, tail);
+        final int oldCount = count;
+        count += n - (to - from);
+        if (count < oldCount) {
+            Arrays.fill(buffers, count, oldCount, null);
+        }
+    }
+
+    private void setPiece(final int i, @NotNull final char[] buffer, final int start, final int length) {
+        buffers[i] = buffer;
+        starts[i] = start;
+        lengths[i] = length;
+    }
+
+    // Drops the empty pieces among the n from the given index and recomputes the offsets from there on.
+    private void reindex(final int from, final int n) {
+        int k = from;
+        for (int i = from; i < from + n; i++) {
+            if (lengths[i] > 0) {
+                setPiece(k++, buffers[i], starts[i], lengths[i]);
+            }
+        }
+
+        if (k < from + n) {
+            final int tail = count - (from + n);
+            System.arraycopy(buffers, from + n, buffers, k, tail);
+            System.arraycopy(starts, from + n, starts, k, tail);
+            System.arraycopy(lengths, from + n, lengths, k, tail);
+            count = k + tail;
+            Arrays.fill(buffers, count, buffers.length, null);
+        }
+
+        for (int i = Math.max(from, 1); i < count; i++) {
+            offsets[i] = offsets[i - 1] + lengths[i - 1];
+        }
+    }
+
+    private void insertPiece(final int where, @NotNull final char[] buffer, final int start, final int n) {
+        final int i = findPiece(where);
+        final int into = where - offsets[i];
+        if (into == 0 && i > 0 && buffers[i - 1] == buffer && starts[i - 1] + lengths[i - 1] == start) {
+            // Typing at the end of what was just typed extends that piece.
+            unshare(count);
+            lengths[i - 1] += n;
+            for (int k = i; k < count; k++) {
+                offsets[k] += n;
+            }
+        } else if (into == 0) {
+            openPieces(i, i, 1);
+            setPiece(i, buffer, start, n);
+            reindex(i, 1);
+        } else {
+            final char[] split = buffers[i];
+            final int splitStart = starts[i];
+            final int splitLength = lengths[i];
+            openPieces(i, i + 1, 3);
+            setPiece(i, split, splitStart, into);
+            setPiece(i + 1, buffer, start, n);
+            setPiece(i + 2, split, splitStart + into, splitLength - into);
+            reindex(i, 3);
+        }
+    }
+
+    @Override
+    public UndoableEdit insertString(final int where, @NotNull final String str) throws BadLocationException {
+        if (where < 0 || where >= length) {
+            throw new BadLocationException("invalid insert position", where);
+        }
+
+        final int n = str.length();
+        if (n > blockSize / 2) {
+            // Large insertions, such as a file being loaded, get a buffer of their own.
+            insertPiece(where, str.toCharArray(), 0, n);
+        } else if (n > 0) {
+            if (blockUsed + n > blockSize) {
+                block = new char[blockSize];
+                blockUsed = 0;
+            }
+
+            str.getChars(0, n, block, blockUsed);
+            insertPiece(where, block, blockUsed, n);
+            blockUsed += n;
+        }
+
+        length += n;
+        updateMarksForInsert(where, n);
+        return new InsertUndo(where, n);
+    }
+
+    @Override
+    public UndoableEdit remove(final int where, final int nitems) throws BadLocationException {
+        if (where < 0 || nitems < 0 || where + nitems >= length) {
+            throw new BadLocationException("invalid remove range", where);
+        }
+
+        final String removed = getString(where, nitems);
+        final Mark[] collapsed;
+        final int[] collapsedOffsets;
+        if (nitems > 0) {
+            // Like StringContent, remember the positions in the range, including its ends, to restore them on undo.
+            final int from = firstMark(where);
+            final int to = firstMark(where + nitems + 1);
+            collapsed = Arrays.copyOfRange(marks, from, to);
+            collapsedOffsets = new int[to - from];
+            for (int i = 0; i < collapsedOffsets.length; i++) {
+                collapsedOffsets[i] = offset(collapsed[i].raw);
+            }
+
+            final int end = where + nitems;
+            final int i = findPiece(where);
+            final int j = findPiece(end - 1);
+            final char[] left = buffers[i];
+            final int leftStart = starts[i];
+            final int leftLength = where - offsets[i];
+            final char[] right = buffers[j];
+            final int rightLength = offsets[j] + lengths[j] - end;
+            final int rightStart = starts[j] + lengths[j] - rightLength;
+            openPieces(i, j + 1, 2);
+            setPiece(i, left, leftStart, leftLength);
+            setPiece(i + 1, right, rightStart, rightLength);
+            reindex(i, 2);
+            length -= nitems;
+            updateMarksForRemove(where, nitems);
+        } else {
+            collapsed = new Mark[0];
+            collapsedOffsets = new int[0];
+        }
+
+        return new RemoveUndo(where, removed, collapsed, collapsedOffsets);
+    }
+
+    @Override
+    public String getString(final int where, final int len) throws BadLocationException {
+        checkRange(where, len);
+        return snapshotOf(where, where + len).toString();
+    }
+
+    @Override
+    public void getChars(final int where, final int len, @NotNull final Segment txt) throws BadLocationException {
+        checkRange(where, len);
+        if (len == 0) {
+            txt.array = newline;
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+
+        final int i = findPiece(where);
+        final int into = where - offsets[i];
+        if (txt.isPartialReturn() || lengths[i] - into >= len) {
+            txt.array = buffers[i];
+            txt.offset = starts[i] + into;
+            txt.count = Math.min(len, lengths[i] - into);
+        } else {
+            final char[] chars = new char[len];
+            snapshotOf(where, where + len).getChars(chars);
+            txt.array = chars;
+            txt.offset = 0;
+            txt.count = len;
+        }
+    }
+
+    private void checkRange(final int where, final int len) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length) {
+            throw new BadLocationException("invalid range", where);
+        }
+    }
+
+    // An immutable view of [start, end) of the text. Later edits do not change it, and taking it does not copy text.
+    public @NotNull
+    Snapshot snapshot(final int start, final int end) throws BadLocationException {
+        checkRange(start, end - start);
+        shared = true;
+        return snapshotOf(start, end);
+    }
+
+    // A view that must not outlive the next edit.
+    private @NotNull
+    Snapshot snapshotOf(final int start, final int end) {
+        return new Snapshot(buffers, starts, lengths, offsets, count, start, end);
+    }
+
+    public static final class Snapshot implements CharSequence {
+
+        private final char[][] buffers;
+        private final int[] starts;
+        private final int[] lengths;
+        private final int[] offsets;
+        private final int count;
+        private final int from;
+        private final int to;
+        // The piece of the last access, as a hint for sequential reads. Races on it are harmless.
+        private int hint;
+
+        private Snapshot(@NotNull final char[][] buffers, @NotNull final int[] starts, @NotNull final int[] lengths,
+                         @NotNull final int[] offsets, final int count, final int from, final int to) {
+            this.buffers = buffers;
+            this.starts = starts;
+            this.lengths = lengths;
+            this.offsets = offsets;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            Objects.checkIndex(index, to - from);
+            final int position = from + index;
+            int i = hint;
+            if (position < offsets[i] || position >= offsets[i] + lengths[i]) {
+                i = findPiece(offsets, count, position);
+                hint = i;
+            }
+
+            return buffers[i][starts[i] + position - offsets[i]];
+        }
+
+        @Override
+        public @NotNull
+        Snapshot subSequence(final int start, final int end) {
+            Objects.checkFromToIndex(start, end, to - from);
+            return new Snapshot(buffers, starts, lengths, offsets, count, from + start, from + end);
+        }
+
+        private void getChars(@NotNull final char[] destination) {
+            int position = from;
+            int n = 0;
+            for (int i = findPiece(offsets, count, from); position < to; i++) {
+                final int into = position - offsets[i];
+                final int chunk = Math.min(lengths[i] - into, to - position);
+                System.arraycopy(buffers[i], starts[i] + into, destination, n, chunk);
+                n += chunk;
+                position += chunk;
+            }
+        }
+
+        @Override
+        public @NotNull
+        String toString() {
+            final char[] chars = new char[to - from];
+            getChars(chars);
+            return new String(chars);
+        }
+
+    }
+
+    private final class InsertUndo extends AbstractUndoableEdit {
+
+        private final int where;
+        private final int length;
+        private RemoveUndo removal;
+
+        InsertUndo(final int where, final int length) {
+            this.where = where;
+            this.length = length;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                removal = (RemoveUndo) remove(where, length);
+            } catch (final BadLocationException e) {
+                throw new CannotUndoException();
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try {
+                removal.reinsert();
+                removal = null;
+            } catch (final BadLocationException e) {
+                throw new CannotRedoException();
+            }
+        }
+
+    }
+
+    private final class RemoveUndo extends AbstractUndoableEdit {
+
+        private final int where;
+        private final int length;
+        private String string;
+        private Mark[] collapsed;
+        private int[] collapsedOffsets;
+
+        RemoveUndo(final int where, @NotNull final String string, @NotNull final Mark[] collapsed,
+                   @NotNull final int[] collapsedOffsets) {
+            this.where = where;
+            this.length = string.length();
+            this.string = string;
+            this.collapsed = collapsed;
+            this.collapsedOffsets = collapsedOffsets;
+        }
+
+        void reinsert() throws BadLocationException {
+            insertString(where, string);
+            restoreMarks(collapsed, collapsedOffsets, where, length);
+            string = null;
+            collapsed = null;
+            collapsedOffsets = null;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                reinsert();
+            } catch (final BadLocationException e) {
+                throw new CannotUndoException();
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try {
+                final RemoveUndo again = (RemoveUndo) remove(where, length);
+                string = again.string;
+                collapsed = again.collapsed;
+                collapsedOffsets = again.collapsedOffsets;
+            } catch (final BadLocationException e) {
+                throw new CannotRedoException();
+            }
+        }
+
+    }
+
+    private int offset(final long raw) {
+        return (int) (raw < gapStart ? raw : raw - gapLength);
+    }
+
+    // The index of the first mark with a raw value of at least raw.
+    private int findMark(final long raw) {
+        int low = 0;
+        int high = markCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (marks[mid].raw < raw) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    // The index of the first mark at or after the offset.
+    private int firstMark(final int offset) {
+        int low = 0;
+        int high = markCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (offset(marks[mid].raw) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    // Puts marks that a removal of [where, where + n) collapsed back at their offsets, now that the text is back.
+    private void restoreMarks(@NotNull final Mark[] saved, @NotNull final int[] savedOffsets, final int where,
+                              final int n) {
+        if (saved.length == 0) {
+            return;
+        }
+
+        final int from = firstMark(where);
+        final int to = firstMark(where + n + 1);
+        for (int i = 0; i < saved.length; i++) {
+            if (!saved[i].dead) {
+                final int offset = savedOffsets[i];
+                saved[i].raw = offset < gapStart ? offset : offset + gapLength;
+            }
+        }
+
+        Arrays.sort(marks, from, to, Comparator.comparingLong(m -> m.raw));
+    }
+
+    // Moves the gap so that marks at or after the offset are after it and the others are before it.
+    private void moveGap(final long offset) {
+        if (offset < gapStart) {
+            for (int i = findMark(offset), end = findMark(gapStart); i < end; i++) {
+                marks[i].raw += gapLength;
+            }
+        } else if (offset > gapStart) {
+            for (int i = findMark(gapStart + gapLength), end = findMark(offset + gapLength); i < end; i++) {
+                marks[i].raw -= gapLength;
+            }
+        }
+
+        gapStart = offset;
+    }
+
+    private void updateMarksForInsert(final int where, final int n) {
+        // Marks at offset 0 stay there, so an insertion there only moves the marks after it.
+        moveGap(Math.max(where, 1));
+        gapStart += n;
+        gapLength -= n;
+    }
+
+    private void updateMarksForRemove(final int where, final int n) {
+        moveGap(where + n);
+        // The marks inside the removed range collapse onto its start, which is where the gap now begins.
+        for (int i = findMark(where), end = findMark(where + n); i < end; i++) {
+            marks[i].raw = where + gapLength + n;
+        }
+
+        gapStart = where;
+        gapLength += n;
+    }
+
+    private void purgeMarks() {
+        for (Object m = queue.poll(); m != null; m = queue.poll()) {
+            ((Mark) m).dead = true;
+            deadMarks++;
+        }
+
+        if (deadMarks > 0 && deadMarks >= markCount / 2) {
+            int k = 0;
+            for (int i = 0; i < markCount; i++) {
+                if (!marks[i].dead) {
+                    marks[k++] = marks[i];
+                }
+            }
+
+            Arrays.fill(marks, k, markCount, null);
+            markCount = k;
+            deadMarks = 0;
+        }
+    }
+
+    @Override
+    public Position createPosition(final int offset) throws BadLocationException {
+        if (offset < 0 || offset > length) {
+            throw new BadLocationException("invalid position", offset);
+        }
+
+        purgeMarks();
+        final long raw = offset < gapStart ? offset : offset + gapLength;
+        final StickyPosition position = new StickyPosition();
+        position.mark = new Mark(position, queue, raw);
+        if (markCount == marks.length) {
+            marks = Arrays.copyOf(marks, markCount * 2);
+        }
+
+        final int i = findMark(raw);
+        System.arraycopy(marks, i, marks, i + 1, markCount - i);
+        marks[i] = position.mark;
+        markCount++;
+        return position;
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyleContext;
+
+// A StyledDocument backed by a PieceTableContent. Typing costs the same at any document size, and the text, or any
+// range of it, can be taken as an immutable CharSequence without copying it, to be read on any thread.
+public class PieceTableDocument extends DefaultStyledDocument {
+
+    private final PieceTableContent content;
+
+    public PieceTableDocument() {
+        this(new PieceTableContent());
+    }
+
+    private PieceTableDocument(@NotNull final PieceTableContent content) {
+        super(content, new StyleContext());
+        this.content = content;
+    }
+
+    public @NotNull
+    CharSequence snapshot() {
+        readLock();
+        try {
+            return content.snapshot(0, getLength());
+        } catch (final BadLocationException e) {
+            throw new AssertionError(e);
+        } finally {
+            readUnlock();
+        }
+    }
+
+    public @NotNull
+    CharSequence snapshot(final int start, final int end) throws BadLocationException {
+        readLock();
+        try {
+            if (end > getLength()) {
+                throw new BadLocationException("invalid range", end);
+            }
+
+            return content.snapshot(start, end);
+        } finally {
+            readUnlock();
+        }
+    }
+
+}
@@ -0,0 +1,409 @@
+package org.enki;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.data.Pointer;
+import net.sf.extjwnl.data.PointerType;
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.data.Word;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// All of WordNet's synsets, lemmas and pointers held in int arrays, for relation queries that do not go through
+// extJWNL's object graph. As in WordNet, an index word is a lower-cased lemma in one part of speech, and its senses are
+// the synsets with a word of that lemma in any case, so the noun "turkey" has the senses of both "Turkey" and "turkey".
+// The words of a synset keep their case. Synsets are numbered in order of part of speech and offset, index words in
+// order of part of speech and lemma, and lemmas in sorted order, so a sorted array of lemma ids is also in order.
+//
+// Adjacency is in compressed sparse row form: the targets of synset s are targets[start[s]] up to
+// targets[start[s + 1]], with one pair of arrays per pointer type and one each for the lemmas of the words of a synset
+// and the senses of an index word. Pointers are between synsets, as in WordNetUtilities.targetsAsList, so a lexical
+// pointer such as an antonym links the synsets of the two words.
+public class RelationGraph {
+
+    private static final List<POS> parts = POS.getAllPOS();
+    private static final int indexBits = 20;
+
+    private final long[] keys;
+    private final String[] lemmas;
+    // The lower-cased lemmas of the index words of each part of speech, sorted, and the id of the first of them.
+    private final String[][] indexLemmas;
+    private final int[] indexStart;
+    private final int[] wordStart;
+    private final int[] words;
+    private final int[] senseStart;
+    private final int[] senses;
+    private final int[][] targetStart;
+    private final int[][] targets;
+
+    // Grow as needed while the graph is built.
+    private static class LongList {
+
+        long[] values = new long[1024];
+        int size;
+
+        void add(final long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = value;
+        }
+
+    }
+
+    private static class IntList {
+
+        int[] values = new int[1024];
+        int size;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = value;
+        }
+
+    }
+
+    private RelationGraph(@NotNull final long[] keys, @NotNull final String[] lemmas,
+                          @NotNull final String[][] indexLemmas, @NotNull final int[] indexStart,
+                          @NotNull final int[] wordStart, @NotNull final int[] words, @NotNull final int[] senseStart,
+                          @NotNull final int[] senses, @NotNull final int[][] targetStart,
+                          @NotNull final int[][] targets) {
+        this.keys = keys;
+        this.lemmas = lemmas;
+        this.indexLemmas = indexLemmas;
+        this.indexStart = indexStart;
+        this.wordStart = wordStart;
+        this.words = words;
+        this.senseStart = senseStart;
+        this.senses = senses;
+        this.targetStart = targetStart;
+        this.targets = targets;
+    }
+
+    private static long key(@NotNull final POS pos, final long offset) {
+        return (long) parts.indexOf(pos) << 32 | offset;
+    }
+
+    // Reads every synset of the dictionary once. This takes as long as a pass over the WordNet data files, so it is
+    // meant to be done in the background.
+    public static @NotNull
+    RelationGraph build(@NotNull final Dictionary dictionary) throws JWNLException {
+        final PointerType[] types = PointerType.values();
+        final LongList synsetKeys = new LongList();
+        final Map<String, Integer> lemmaIds = new HashMap<>();
+        final List<Map<String, Integer>> indexIds = new ArrayList<>();
+        final IntList wordSynsets = new IntList();
+        final IntList wordLemmas = new IntList();
+        // The index word of each word of a synset, parallel to wordSynsets.
+        final IntList wordIndexWords = new IntList();
+        final IntList edgeSources = new IntList();
+        final IntList edgeTypes = new IntList();
+        final LongList edgeTargets = new LongList();
+        int indexWordCount = 0;
+        for (final POS pos : parts) {
+            final Map<String, Integer> ids = new HashMap<>();
+            indexIds.add(ids);
+            final Iterator<Synset> i = dictionary.getSynsetIterator(pos);
+            while (i.hasNext()) {
+                final Synset s = i.next();
+                final int id = synsetKeys.size;
+                synsetKeys.add(key(pos, s.getOffset()));
+                for (final Word w : s.getWords()) {
+                    wordSynsets.add(id);
+                    wordLemmas.add(lemmaIds.computeIfAbsent(w.getLemma(), x -> lemmaIds.size()));
+                    Integer indexWord = ids.get(w.getLemma().toLowerCase());
+                    if (indexWord == null) {
+                        indexWord = indexWordCount++;
+                        ids.put(w.getLemma().toLowerCase(), indexWord);
+                    }
+
+                    wordIndexWords.add(indexWord);
+                }
+
+                for (final Pointer p : s.getPointers()) {
+                    final long target = key(p.getTargetPOS(), p.getTargetOffset());
+                    edgeSources.add(id);
+                    edgeTypes.add(p.getType().ordinal());
+                    edgeTargets.add(target);
+                    // extJWNL counts instances among the hypernyms and hyponyms, and so does the graph.
+                    final PointerType general = p.getType() == PointerType.INSTANCE_HYPERNYM ? PointerType.HYPERNYM :
+                            p.getType() == PointerType.INSTANCES_HYPONYM ? PointerType.HYPONYM : null;
+                    if (general != null) {
+                        edgeSources.add(id);
+                        edgeTypes.add(general.ordinal());
+                        edgeTargets.add(target);
+                    }
+                }
+            }
+        }
+
+        if (synsetKeys.size >= 1 << indexBits) {
+            throw new IllegalStateException("too many synsets: " + synsetKeys.size);
+        }
+
+        // Number the synsets in key order, and the lemmas in alphabetical order.
+        final int synsetCount = synsetKeys.size;
+        final long[] packed = new long[synsetCount];
+        for (int i = 0; i < synsetCount; i++) {
+            packed[i] = synsetKeys.values[i] << indexBits | i;
+        }
+
+        Arrays.sort(packed);
+        final long[] keys = new long[synsetCount];
+        final int[] synsetIds = new int[synsetCount];
+        for (int i = 0; i < synsetCount; i++) {
+            keys[i] = packed[i] >>> indexBits;
+            synsetIds[(int) (packed[i] & ((1 << indexBits) - 1))] = i;
+        }
+
+        final String[] lemmas = lemmaIds.keySet().toArray(new String[0]);
+        Arrays.sort(lemmas);
+        final int[] lemmaRenumbering = new int[lemmas.length];
+        for (int i = 0; i < lemmas.length; i++) {
+            lemmaRenumbering[lemmaIds.get(lemmas[i])] = i;
+        }
+
+        final int[] wordSources = new int[wordSynsets.size];
+        final int[] wordTargets = new int[wordSynsets.size];
+        for (int i = 0; i < wordSynsets.size; i++) {
+            wordSources[i] = synsetIds[wordSynsets.values[i]];
+            wordTargets[i] = lemmaRenumbering[wordLemmas.values[i]];
+        }
+
+        // Number the index words by part of speech and then lemma.
+        final String[][] indexLemmas = new String[parts.size()][];
+        final int[] indexStart = new int[parts.size()];
+        final int[] indexRenumbering = new int[indexWordCount];
+        int next = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            final Map<String, Integer> ids = indexIds.get(p);
+            indexLemmas[p] = ids.keySet().toArray(new String[0]);
+            Arrays.sort(indexLemmas[p]);
+            indexStart[p] = next;
+            for (final String lemma : indexLemmas[p]) {
+                indexRenumbering[ids.get(lemma)] = next++;
+            }
+        }
+
+        final int[] senseSources = new int[wordSynsets.size];
+        for (int i = 0; i < wordSynsets.size; i++) {
+            senseSources[i] = indexRenumbering[wordIndexWords.values[i]];
+        }
+
+        final int[][] wordRows = rows(synsetCount, wordSources, wordTargets, wordSources.length);
+        final int[][] senseRows = rows(indexWordCount, senseSources, wordSources, senseSources.length);
+
+        final int[][] targetStart = new int[types.length][];
+        final int[][] targets = new int[types.length][];
+        for (final PointerType type : types) {
+            final IntList sources = new IntList();
+            final IntList destinations = new IntList();
+            for (int i = 0; i < edgeSources.size; i++) {
+                if (edgeTypes.values[i] == type.ordinal()) {
+                    final int target = Arrays.binarySearch(keys, edgeTargets.values[i]);
+                    if (target >= 0) {
+                        sources.add(synsetIds[edgeSources.values[i]]);
+                        destinations.add(target);
+                    }
+                }
+            }
+
+            final int[][] rows = rows(synsetCount, sources.values, destinations.values, sources.size);
+            targetStart[type.ordinal()] = rows[0];
+            targets[type.ordinal()] = rows[1];
+        }
+
+        return new RelationGraph(keys, lemmas, indexLemmas, indexStart, wordRows[0], wordRows[1], senseRows[0],
+                senseRows[1], targetStart, targets);
+    }
+
+    // Builds the compressed sparse rows of the first n edges, each row sorted and without duplicates.
+    private static @NotNull
+    int[][] rows(final int rowCount, @NotNull final int[] sources, @NotNull final int[] destinations, final int n) {
+        final int[] start = new int[rowCount + 1];
+        for (int i = 0; i < n; i++) {
+            start[sources[i] + 1]++;
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            start[i + 1] += start[i];
+        }
+
+        final int[] next = Arrays.copyOf(start, rowCount);
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[next[sources[i]]++] = destinations[i];
+        }
+
+        // Sort and deduplicate each row in place, then close the gaps.
+        int size = 0;
+        for (int row = 0; row < rowCount; row++) {
+            final int from = start[row];
+            final int to = start[row + 1];
+            Arrays.sort(values, from, to);
+            start[row] = size;
+            for (int i = from; i < to; i++) {
+                if (i == from || values[i] != values[i - 1]) {
+                    values[size++] = values[i];
+                }
+            }
+        }
+
+        start[rowCount] = size;
+        return new int[][]{start, Arrays.copyOf(values, size)};
+    }
+
+    public int synsetCount() {
+        return keys.length;
+    }
+
+    public int lemmaCount() {
+        return lemmas.length;
+    }
+
+    // The id of the index word for a lemma in a part of speech, in any case, or -1 if WordNet has none. Inflected forms
+    // are not reduced to their lemma.
+    public int indexWordId(@NotNull final POS pos, @NotNull final String lemma) {
+        final int p = parts.indexOf(pos);
+        final int i = Arrays.binarySearch(indexLemmas[p], lemma.toLowerCase());
+        return i < 0 ? -1 : indexStart[p] + i;
+    }
+
+    public @NotNull
+    String lemma(final int id) {
+        return lemmas[id];
+    }
+
+    public @NotNull
+    List<String> lemmas(@NotNull final int[] ids) {
+        final List<String> l = new ArrayList<>(ids.length);
+        for (final int id : ids) {
+            l.add(lemmas[id]);
+        }
+
+        return l;
+    }
+
+    // The id of a synset, or -1 if there is none at that offset.
+    public int synsetId(@NotNull final POS pos, final long offset) {
+        final int i = Arrays.binarySearch(keys, key(pos, offset));
+        return i < 0 ? -1 : i;
+    }
+
+    public @NotNull
+    POS pos(final int synset) {
+        return parts.get((int) (keys[synset] >>> 32));
+    }
+
+    public long offset(final int synset) {
+        return keys[synset] & 0xFFFFFFFFL;
+    }
+
+    // The senses of an index word.
+    public @NotNull
+    int[] synsets(final int indexWord) {
+        return Arrays.copyOfRange(senses, senseStart[indexWord], senseStart[indexWord + 1]);
+    }
+
+    // The lemmas of the words of a synset.
+    public @NotNull
+    int[] words(final int synset) {
+        return Arrays.copyOfRange(words, wordStart[synset], wordStart[synset + 1]);
+    }
+
+    public @NotNull
+    int[] targets(final int synset, @NotNull final PointerType type) {
+        final int[] start = targetStart[type.ordinal()];
+        return Arrays.copyOfRange(targets[type.ordinal()], start[synset], start[synset + 1]);
+    }
+
+    // The lemmas of the words of the senses of an index word, including its own, as in WordNetUtilities.synonymsAsList.
+    public @NotNull
+    int[] synonyms(final int indexWord) {
+        final BitSet found = new BitSet(lemmas.length);
+        for (int i = senseStart[indexWord]; i < senseStart[indexWord + 1]; i++) {
+            addWords(senses[i], found);
+        }
+
+        return found.stream().toArray();
+    }
+
+    // The lemmas of the synsets one pointer of the given type away from a sense of an index word, as in
+    // WordNetUtilities.targetsAsList.
+    public @NotNull
+    int[] related(final int indexWord, @NotNull final PointerType type) {
+        return expand(indexWord, type, 1);
+    }
+
+    // The lemmas of the synsets reachable from a sense of an index word by following one to hops pointers of the given
+    // type, such as all the hypernyms up to three levels up.
+    public @NotNull
+    int[] expand(final int indexWord, @NotNull final PointerType type, final int hops) {
+        final int[] start = targetStart[type.ordinal()];
+        final int[] adjacent = targets[type.ordinal()];
+        final BitSet visited = new BitSet(keys.length);
+        int[] frontier = synsets(indexWord);
+        for (final int s : frontier) {
+            visited.set(s);
+        }
+
+        final BitSet found = new BitSet(lemmas.length);
+        for (int hop = 0; hop < hops && frontier.length > 0; hop++) {
+            final BitSet next = new BitSet(keys.length);
+            for (final int s : frontier) {
+                for (int i = start[s]; i < start[s + 1]; i++) {
+                    final int t = adjacent[i];
+                    addWords(t, found);
+                    if (!visited.get(t)) {
+                        visited.set(t);
+                        next.set(t);
+                    }
+                }
+            }
+
+            frontier = next.stream().toArray();
+        }
+
+        return found.stream().toArray();
+    }
+
+    // The synsets reached from a synset by repeatedly following the first pointer of the given type, such as the chain
+    // of hypernyms up to the root. The synset itself is first.
+    public @NotNull
+    int[] chain(final int synset, @NotNull final PointerType type) {
+        final int[] start = targetStart[type.ordinal()];
+        final int[] adjacent = targets[type.ordinal()];
+        final BitSet visited = new BitSet(keys.length);
+        final IntList chain = new IntList();
+        for (int s = synset; !visited.get(s); ) {
+            visited.set(s);
+            chain.add(s);
+            if (start[s] == start[s + 1]) {
+                break;
+            }
+
+            s = adjacent[start[s]];
+        }
+
+        return Arrays.copyOf(chain.values, chain.size);
+    }
+
+    private void addWords(final int synset, @NotNull final BitSet found) {
+        for (int i = wordStart[synset]; i < wordStart[synset + 1]; i++) {
+            found.set(words[i]);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Times the phases of startup. Each phase is reported as it finishes, with how long it took and when it finished
+// relative to the start of the JVM, so that the slowest path to a usable window is easy to see.
+public class Startup {
+
+    public record Phase(@NotNull String name, long startMillis, long endMillis, boolean failed) {
+
+        public long durationMillis() {
+            return endMillis - startMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d ms (done at %d ms)%s", name, durationMillis(), endMillis,
+                    failed ? ", failed" : "");
+        }
+
+    }
+
+    private final long origin =
+            System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+
+    private void finished(@NotNull final String name, final long start, final boolean failed) {
+        final Phase phase = new Phase(name, start, elapsedMillis(), failed);
+        phases.add(phase);
+        System.err.println("startup " + phase);
+    }
+
+    // Records an instant, such as the first window being shown.
+    public void mark(@NotNull final String name) {
+        final long now = elapsedMillis();
+        phases.add(new Phase(name, now, now, false));
+        System.err.println("startup " + name + " at " + now + " ms");
+    }
+
+    public <T> CompletableFuture<T> phase(@NotNull final String name, @NotNull final Callable<T> task,
+                                          @NotNull final Executor executor) {
+        Objects.requireNonNull(task);
+        return phase(name, CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (final Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    // Times a phase that is already running, from now until the future completes.
+    public <T> CompletableFuture<T> phase(@NotNull final String name, @NotNull final CompletableFuture<T> f) {
+        Objects.requireNonNull(name);
+        final long start = elapsedMillis();
+        return f.whenComplete((r, e) -> finished(name, start, e != null));
+    }
+
+    public @NotNull
+    List<Phase> phases() {
+        return List.copyOf(phases);
+    }
+
+}
@@ -0,0 +1,193 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.security.SecureRandom;
+
+// Reads and writes text files a chunk at a time, in an explicitly chosen charset. Malformed input is reported rather
+// than replaced, and a write replaces the target atomically.
+public class TextFiles {
+
+    private static final int chunkSize = 1 << 16;
+    private static final SecureRandom random = new SecureRandom();
+    private static final LatencyHistogram readLatency = Metrics.histogram("file load");
+    private static final LatencyHistogram writeLatency = Metrics.histogram("file save");
+
+    public interface ChunkConsumer {
+
+        void accept(@NotNull CharBuffer chunk) throws IOException;
+
+    }
+
+    private TextFiles() {
+    }
+
+    private static void check(@NotNull final CoderResult result) throws CharacterCodingException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    // A chunk is only valid during the call.
+    public static void read(@NotNull final Path path, @NotNull final Charset charset,
+                            @NotNull final ChunkConsumer consumer) throws IOException {
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        final ByteBuffer bytes = ByteBuffer.allocate(chunkSize);
+        final CharBuffer chars = CharBuffer.allocate(chunkSize);
+        final long start = System.nanoTime();
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) == -1;
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, endOfInput);
+                    check(result);
+                    deliver(chars, consumer);
+                } while (result.isOverflow());
+
+                bytes.compact();
+            }
+
+            CoderResult result;
+            do {
+                result = decoder.flush(chars);
+                check(result);
+                deliver(chars, consumer);
+            } while (result.isOverflow());
+        } finally {
+            readLatency.recordSince(start);
+        }
+    }
+
+    private static void deliver(@NotNull final CharBuffer chars, @NotNull final ChunkConsumer consumer)
+            throws IOException {
+        chars.flip();
+        if (chars.hasRemaining()) {
+            consumer.accept(chars);
+        }
+
+        chars.clear();
+    }
+
+    // Unlike Files.createTempFile, which makes the file private to its owner, this gives it the default permissions.
+    @NotNull
+    private static Path createTemporary(@NotNull final Path target) throws IOException {
+        while (true) {
+            final Path temporary = target.resolveSibling("." + target.getFileName() + "." +
+                    Long.toUnsignedString(random.nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(temporary);
+            } catch (final FileAlreadyExistsException e) {
+                // Try another name.
+            }
+        }
+    }
+
+    // Gives the replacement the permissions, and where allowed the owner and group, of the file it replaces.
+    private static void copyAttributes(@NotNull final Path from, @NotNull final Path to) throws IOException {
+        final PosixFileAttributeView fromView = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        final PosixFileAttributeView toView = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+        if (fromView != null && toView != null) {
+            final PosixFileAttributes attributes = fromView.readAttributes();
+            toView.setPermissions(attributes.permissions());
+            try {
+                toView.setGroup(attributes.group());
+                toView.setOwner(attributes.owner());
+            } catch (final IOException e) {
+                // Only a privileged user can give away a file; the saving user owning it is the best we can do.
+            }
+
+            return;
+        }
+
+        final DosFileAttributeView fromDos = Files.getFileAttributeView(from, DosFileAttributeView.class);
+        final DosFileAttributeView toDos = Files.getFileAttributeView(to, DosFileAttributeView.class);
+        if (fromDos != null && toDos != null) {
+            final DosFileAttributes attributes = fromDos.readAttributes();
+            toDos.setHidden(attributes.isHidden());
+            toDos.setArchive(attributes.isArchive());
+            toDos.setSystem(attributes.isSystem());
+        }
+    }
+
+    // A symbolic link is followed, so the file it points to is replaced rather than the link itself.
+    public static void write(@NotNull final Path path, @NotNull final CharSequence text, @NotNull final Charset charset)
+            throws IOException {
+        final long start = System.nanoTime();
+        final Path target = Files.exists(path) ? path.toRealPath() : path.toAbsolutePath();
+        final Path temporary = createTemporary(target);
+        try {
+            final CharsetEncoder encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            final CharBuffer chars = CharBuffer.wrap(text);
+            final ByteBuffer bytes = ByteBuffer.allocate(chunkSize);
+            try (final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CoderResult result;
+                do {
+                    result = encoder.encode(chars, bytes, true);
+                    check(result);
+                    drain(bytes, channel);
+                } while (result.isOverflow());
+
+                do {
+                    result = encoder.flush(bytes);
+                    check(result);
+                    drain(bytes, channel);
+                } while (result.isOverflow());
+
+                channel.force(true);
+            }
+
+            if (Files.exists(target)) {
+                copyAttributes(target, temporary);
+            }
+
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    private static void drain(@NotNull final ByteBuffer bytes, @NotNull final FileChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+
+        bytes.clear();
+    }
+
+}
@@ -0,0 +1,257 @@
+package org.enki;
+
+import org.jetbrains.annotations.NotNull;
+
+// Counts characters the way Twitter does (https://developer.twitter.com/en/docs/counting-characters), directly on a
+// CharSequence and without allocating:
+//
+// * Code points in the Latin, general punctuation and similar ranges below count 1, all others count 2.
+// * An emoji counts 2 however many code points it is made of: skin tone modifiers, variation selectors, zero width
+//   joiner sequences, keycaps, flags and tag sequences are all one emoji.
+// * A URL counts 23, whatever its length, with or without a protocol. Without a protocol, the domain must end in a
+//   known generic top-level domain, or in a country code one followed by a path, as in Twitter's own extractor.
+//
+// Twitter also normalizes text to NFC before counting, which this does not do, so a letter followed by a combining
+// accent counts 2 where Twitter would count 1.
+//
+// Every rule is local to a run of text without whitespace, so the count of a text is the sum of the counts of the runs
+// between its spaces. DocumentStatistics relies on that to update the count as the document is edited.
+public class TwitterText {
+
+    public static final int maxLength = 280;
+    public static final int urlLength = 23;
+
+    // Ranges of code points that count 1, inclusive.
+    private static final int[][] lightRanges = {{0, 4351}, {8192, 8205}, {8208, 8223}, {8242, 8247}};
+
+    // Generic top-level domains recognized without a protocol. Two letter domains are country codes.
+    private static final String[] genericTopLevelDomains = {
+            "aero", "app", "art", "asia", "biz", "blog", "cat", "cloud", "club", "com", "coop", "design", "dev",
+            "edu", "email", "gov", "info", "int", "jobs", "live", "media", "mil", "mobi", "museum", "name", "net",
+            "news", "online", "org", "page", "pro", "shop", "site", "space", "store", "tech", "tel", "travel", "xxx",
+            "xyz"
+    };
+
+    private TwitterText() {
+        throw new AssertionError("static utility class is not intended to be instantiated");
+    }
+
+    public static int weightedLength(@NotNull final CharSequence s) {
+        return weightedLength(s, 0, s.length());
+    }
+
+    public static int weightedLength(@NotNull final CharSequence s, final int start, final int end) {
+        int total = 0;
+        int i = start;
+        while (i < end) {
+            if (Character.isWhitespace(s.charAt(i))) {
+                total += weight(s.charAt(i));
+                i++;
+                continue;
+            }
+
+            final int tokenStart = i;
+            while (i < end && !Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+
+            total += tokenLength(s, tokenStart, i);
+        }
+
+        return total;
+    }
+
+    // The count of a run of text without whitespace, which may be or contain a URL.
+    private static int tokenLength(@NotNull final CharSequence s, final int start, final int end) {
+        int urlStart = start;
+        while (urlStart < end && !isAsciiLetterOrDigit(s.charAt(urlStart))) {
+            urlStart++;
+        }
+
+        int urlEnd = end;
+        while (urlEnd > urlStart && isTrailingPunctuation(s.charAt(urlEnd - 1))) {
+            urlEnd--;
+        }
+
+        if (urlStart < urlEnd && isURL(s, urlStart, urlEnd)) {
+            return codePointsLength(s, start, urlStart) + urlLength + codePointsLength(s, urlEnd, end);
+        }
+
+        return codePointsLength(s, start, end);
+    }
+
+    private static int codePointsLength(@NotNull final CharSequence s, final int start, final int end) {
+        int total = 0;
+        int i = start;
+        while (i < end) {
+            final int emojiEnd = emojiEnd(s, i, end);
+            if (emojiEnd != -1) {
+                total += 2;
+                i = emojiEnd;
+            } else {
+                final int c = codePointAt(s, i, end);
+                total += weight(c);
+                i += Character.charCount(c);
+            }
+        }
+
+        return total;
+    }
+
+    private static int weight(final int codePoint) {
+        for (final int[] range : lightRanges) {
+            if (codePoint >= range[0] && codePoint <= range[1]) {
+                return 1;
+            }
+        }
+
+        return 2;
+    }
+
+    // Like Character.codePointAt, but never reads at or past end, and a lone surrogate is a code point of its own.
+    private static int codePointAt(@NotNull final CharSequence s, final int i, final int end) {
+        final char c = s.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+            return Character.toCodePoint(c, s.charAt(i + 1));
+        }
+
+        return c;
+    }
+
+    private static boolean isRegionalIndicator(final int c) {
+        return c >= 0x1F1E6 && c <= 0x1F1FF;
+    }
+
+    private static boolean isEmoji(final int c) {
+        return (c >= 0x1F000 && c <= 0x1FAFF) || (c >= 0x2600 && c <= 0x27BF) || (c >= 0x2300 && c <= 0x23FF) ||
+                (c >= 0x2B00 && c <= 0x2BFF);
+    }
+
+    private static boolean isModifier(final int c) {
+        return c == 0xFE0F || (c >= 0x1F3FB && c <= 0x1F3FF) || (c >= 0xE0020 && c <= 0xE007F);
+    }
+
+    // The end of the emoji that starts at i, or -1 if none does. Any code point followed by the emoji variation
+    // selector is presented as an emoji.
+    private static int emojiEnd(@NotNull final CharSequence s, final int i, final int end) {
+        final int c = codePointAt(s, i, end);
+        int j = i + Character.charCount(c);
+        if (isRegionalIndicator(c)) {
+            if (j < end && isRegionalIndicator(codePointAt(s, j, end))) {
+                j += 2;
+            }
+
+            return j;
+        }
+
+        if ((c >= '0' && c <= '9') || c == '#' || c == '*') {
+            if (j < end && s.charAt(j) == 0xFE0F) {
+                j++;
+            }
+
+            return j < end && s.charAt(j) == 0x20E3 ? j + 1 : -1;
+        }
+
+        if (!isEmoji(c) && !(j < end && s.charAt(j) == 0xFE0F)) {
+            return -1;
+        }
+
+        while (true) {
+            while (j < end && isModifier(codePointAt(s, j, end))) {
+                j += Character.charCount(codePointAt(s, j, end));
+            }
+
+            if (j + 1 < end && s.charAt(j) == 0x200D && isEmoji(codePointAt(s, j + 1, end))) {
+                j += 1 + Character.charCount(codePointAt(s, j + 1, end));
+            } else {
+                return j;
+            }
+        }
+    }
+
+    private static boolean isAsciiLetterOrDigit(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isTrailingPunctuation(final char c) {
+        return ".,;:!?)]}'\"".indexOf(c) >= 0;
+    }
+
+    private static boolean startsWithIgnoreCase(@NotNull final CharSequence s, final int start, final int end,
+                                                @NotNull final String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(s.charAt(start + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Whether [start, end) is a URL: a protocol and a host, or a domain name that Twitter would link without one.
+    static boolean isURL(@NotNull final CharSequence s, final int start, final int end) {
+        final int protocolLength = startsWithIgnoreCase(s, start, end, "https://") ? 8 :
+                startsWithIgnoreCase(s, start, end, "http://") ? 7 : 0;
+        final int hostStart = start + protocolLength;
+        int hostEnd = hostStart;
+        while (hostEnd < end && "/:?#".indexOf(s.charAt(hostEnd)) < 0) {
+            hostEnd++;
+        }
+
+        int labels = 0;
+        int labelStart = hostStart;
+        for (int i = hostStart; i <= hostEnd; i++) {
+            final char c = i < hostEnd ? s.charAt(i) : '.';
+            if (c == '.') {
+                if (i == labelStart || s.charAt(labelStart) == '-' || s.charAt(i - 1) == '-') {
+                    return false;
+                }
+
+                labels++;
+                labelStart = i + 1;
+            } else if (!isAsciiLetterOrDigit(c) && c != '-') {
+                return false;
+            }
+        }
+
+        if (protocolLength > 0) {
+            return true;
+        } else if (labels < 2) {
+            return false;
+        }
+
+        final int tldStart = lastIndexOf(s, '.', hostStart, hostEnd) + 1;
+        final int tldLength = hostEnd - tldStart;
+        if (tldLength == 2) {
+            return isAsciiLetter(s.charAt(tldStart)) && isAsciiLetter(s.charAt(tldStart + 1)) && hostEnd < end &&
+                    s.charAt(hostEnd) == '/';
+        }
+
+        for (final String tld : genericTopLevelDomains) {
+            if (tld.length() == tldLength && startsWithIgnoreCase(s, tldStart, hostEnd, tld)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAsciiLetter(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static int lastIndexOf(@NotNull final CharSequence s, final char c, final int start, final int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+
+        return start - 1;
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.enki;
+
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.Synset;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+// A read-only view of a file too large to edit, such as an exported corpus. The file is memory-mapped and only the
+// pages around the current position are decoded and shown. Grammar checking and word lookups only ever see that
+// window, so memory use is bounded whatever the size of the file.
+public class ViewerFrame extends JFrame {
+
+    // The number of pages decoded and shown at once.
+    private static final int windowPages = 3;
+
+    private final MappedText text;
+    private final Function<String, List<IndexWord>> lookup;
+    private final Executor lookupExecutor;
+    private final JTextArea textArea = new JTextArea() {
+
+        @Override
+        public @Nullable
+        String getToolTipText(@NotNull final MouseEvent event) {
+            final int i = matchIndex.first(viewToModel2D(event.getPoint()));
+            return i == -1 ? null : App.message(matchIndex.get(i));
+        }
+
+    };
+    private final JTextPane definitionArea = new JTextPane();
+    private final JScrollBar pageBar;
+    private final JLabel statusLabel = new JLabel();
+    private final MatchHighlighter matchHighlighter = new MatchHighlighter(textArea);
+    private final CheckScheduler checkScheduler;
+    private MatchIndex matchIndex = MatchIndex.EMPTY;
+    private String window = "";
+    private int firstPage = -1;
+    // The word at the caret, so that a lookup the caret has already moved away from is skipped or discarded.
+    private volatile String requestedWord;
+
+    public ViewerFrame(@NotNull final Path path, @NotNull final MappedText text,
+                       @NotNull final IncrementalChecker checker,
+                       @NotNull final Function<String, List<IndexWord>> lookup,
+                       @NotNull final Executor lookupExecutor) {
+        super(path + " (read-only)");
+        this.text = Objects.requireNonNull(text);
+        this.lookup = Objects.requireNonNull(lookup);
+        this.lookupExecutor = Objects.requireNonNull(lookupExecutor);
+
+        textArea.setEditable(false);
+        textArea.setToolTipText("");
+        definitionArea.setEditable(false);
+
+        checkScheduler = new CheckScheduler(checker, () -> window, matches -> {
+            matchIndex = matches.index();
+            matchHighlighter.setMatches(matchIndex);
+        });
+
+        textArea.addCaretListener(e -> {
+            if (e.getDot() == e.getMark() && e.getDot() < textArea.getDocument().getLength()) {
+                showDefinitions(App.getWordAtCaret(textArea, e.getDot()));
+            }
+        });
+
+        final int pages = text.pageCount();
+        pageBar = new JScrollBar(Adjustable.VERTICAL, 0, Math.min(windowPages, pages), 0, pages);
+        pageBar.addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showPages(e.getValue());
+            }
+        });
+
+        final JScrollPane textScrollPane = new JScrollPane(textArea);
+        matchHighlighter.track(textScrollPane.getViewport());
+
+        final JPanel textPanel = new JPanel(new BorderLayout());
+        textPanel.add(textScrollPane, BorderLayout.CENTER);
+        textPanel.add(pageBar, BorderLayout.EAST);
+
+        final JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(definitionArea),
+                textPanel);
+        splitPane.setDividerLocation(300);
+        add(splitPane);
+        add(statusLabel, BorderLayout.SOUTH);
+
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+
+            @Override
+            public void windowClosed(final WindowEvent e) {
+                checkScheduler.shutdown();
+                try {
+                    text.close();
+                } catch (final IOException x) {
+                    System.err.println(x);
+                }
+            }
+
+        });
+
+        showPages(0);
+    }
+
+    private void showPages(final int page) {
+        if (page == firstPage) {
+            return;
+        }
+
+        try {
+            window = text.decode(page, windowPages);
+        } catch (final IOException e) {
+            JOptionPane.showMessageDialog(this, e, "error reading", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        firstPage = page;
+        matchIndex = MatchIndex.EMPTY;
+        matchHighlighter.setMatches(matchIndex);
+        textArea.setText(window);
+        textArea.setCaretPosition(0);
+        statusLabel.setText(String.format("Pages %d\u2013%d of %d (%,d bytes)", page + 1,
+                Math.min(page + windowPages, text.pageCount()), text.pageCount(), text.size()));
+        checkScheduler.request();
+    }
+
+    // Looks the word up on the lookup thread and shows its definitions when they arrive, if it is still at the caret.
+    private void showDefinitions(@NotNull final String word) {
+        requestedWord = word;
+        CompletableFuture.supplyAsync(() -> word.equals(requestedWord) ? definitions(word) : null, lookupExecutor)
+                .thenAcceptAsync(definitions -> {
+                    if (definitions != null && word.equals(requestedWord) && isDisplayable()) {
+                        definitionArea.setText(definitions);
+                        definitionArea.setCaretPosition(0);
+                    }
+                }, SwingUtilities::invokeLater)
+                .exceptionally(e -> {
+                    System.err.println(e);
+                    return null;
+                });
+    }
+
+    private @NotNull
+    String definitions(@NotNull final String word) {
+        final StringBuilder b = new StringBuilder();
+        for (final IndexWord w : lookup.apply(word)) {
+            b.append(w.getLemma()).append(" (").append(w.getPOS().getLabel()).append(")\n");
+            final List<Synset> senses = w.getSenses();
+            for (int i = 0; i < senses.size(); i++) {
+                b.append(i + 1).append(' ').append(senses.get(i).getGloss()).append('\n');
+            }
+
+            b.append('\n');
+        }
+
+        return b.toString();
+    }
+
+}
@@ -0,0 +1,132 @@
+package org.enki;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.PointerType;
+import net.sf.extjwnl.data.Word;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Remembers the words found for recently looked up strings, the relation types of recently shown words and the words
+// in recently expanded relation groups, so that moving back and forth between the same few words does not repeat the
+// WordNet traversals. The caches are bounded and evict the least recently used entries.
+public class WordCache {
+
+    // The synonyms of a word when the type is null, otherwise the targets of that relation.
+    public record Group(@NotNull IndexWord word, @Nullable PointerType type) {
+    }
+
+    private static final LatencyHistogram relationsLatency = Metrics.histogram("relation lists");
+
+    private final LoadingCache<String, List<IndexWord>> words;
+    private final LoadingCache<IndexWord, List<PointerType>> relationTypes;
+    private final LoadingCache<Group, List<Word>> relations;
+
+    public WordCache(@NotNull final Function<String, List<IndexWord>> lookup, final long maximumSize) {
+        Objects.requireNonNull(lookup);
+        words = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(new CacheLoader<String, List<IndexWord>>() {
+
+                    @Override
+                    public List<IndexWord> load(@NotNull final String s) {
+                        return List.copyOf(lookup.apply(s));
+                    }
+
+                });
+        relationTypes = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build(new CacheLoader<IndexWord, List<PointerType>>() {
+
+                    @Override
+                    public List<PointerType> load(@NotNull final IndexWord w) {
+                        return WordNetUtilities.relationTypes.stream()
+                                .filter(type -> WordNetUtilities.hasTargets(w, type))
+                                .collect(Collectors.toUnmodifiableList());
+                    }
+
+                });
+        relations = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(new CacheLoader<Group, List<Word>>() {
+
+                    @Override
+                    public List<Word> load(@NotNull final Group g) {
+                        return computeRelations(g);
+                    }
+
+                });
+    }
+
+    private static @NotNull
+    List<Word> computeRelations(@NotNull final Group g) {
+        final long start = System.nanoTime();
+        final List<Word> l = List.copyOf(g.type() == null ? WordNetUtilities.synonymsAsList(g.word()) :
+                WordNetUtilities.targetsAsList(g.word(), g.type()));
+        relationsLatency.recordSince(start);
+        return l;
+    }
+
+    private static @NotNull
+    String normalize(@NotNull final String s) {
+        return s.trim().toLowerCase();
+    }
+
+    public @NotNull
+    List<IndexWord> lookup(@NotNull final String s) {
+        return words.getUnchecked(normalize(s));
+    }
+
+    // Returns the relation types, in display order, for which the word has targets.
+    public @NotNull
+    List<PointerType> relationTypes(@NotNull final IndexWord w) {
+        return relationTypes.getUnchecked(w);
+    }
+
+    public @Nullable
+    List<PointerType> cachedRelationTypes(@NotNull final IndexWord w) {
+        return relationTypes.getIfPresent(w);
+    }
+
+    public @NotNull
+    List<Word> relations(@NotNull final Group g) {
+        return relations.getUnchecked(g);
+    }
+
+    public @Nullable
+    List<Word> cachedRelations(@NotNull final Group g) {
+        return relations.getIfPresent(g);
+    }
+
+    public @NotNull
+    CacheStats wordStats() {
+        return words.stats();
+    }
+
+    public @NotNull
+    CacheStats relationStats() {
+        return relations.stats();
+    }
+
+    private static @NotNull
+    String format(@NotNull final CacheStats s) {
+        return String.format("%d hits (%.0f%%), %d misses, %d evictions", s.hitCount(), s.hitRate() * 100,
+                s.missCount(), s.evictionCount());
+    }
+
+    @Override
+    public String toString() {
+        return "words: " + format(wordStats()) + "; relations: " + format(relationStats());
+    }
+
+}
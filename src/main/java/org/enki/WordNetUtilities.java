@@ -1,15 +1,27 @@
 package org.enki;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
 import net.sf.extjwnl.JWNLException;
 import net.sf.extjwnl.data.IndexWord;
 import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.data.PointerTarget;
+import net.sf.extjwnl.data.PointerType;
 import net.sf.extjwnl.data.Synset;
 import net.sf.extjwnl.data.Word;
 import net.sf.extjwnl.dictionary.Dictionary;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -23,6 +35,20 @@ import java.util.stream.StreamSupport;
 
 public class WordNetUtilities {
 
+    // The relations shown for each word, in display order.
+    public static final List<PointerType> relationTypes = List.of(
+            PointerType.ANTONYM,
+            PointerType.HYPERNYM,
+            PointerType.CATEGORY,
+            PointerType.CATEGORY_MEMBER
+    );
+
+    public static final String phrasesFileName = "phrases-wn31-v1.bin";
+
+    private static final List<POS> parts = POS.getAllPOS();
+    private static final int phrasesMagic = 0x57575048;
+    private static final int phrasesVersion = 1;
+
     private WordNetUtilities() {
         throw new AssertionError("static utility class is not intended to be instantiated");
     }
@@ -53,10 +79,14 @@ public class WordNetUtilities {
         return b.toString();
     }
 
-    private static boolean contains(@NotNull final Word multiWord, @NotNull final Word singleWord) {
-        assert !singleWord.getLemma().contains(" ");
-        return Arrays.stream(multiWord.getLemma().split(" ")).map(WordNetUtilities::normalizeNonLetters)
-                .collect(Collectors.toSet()).contains(singleWord.getLemma());
+    private static @NotNull
+    Set<String> tokens(@NotNull final String lemma) {
+        final Set<String> s = new HashSet<>();
+        for (final String token : lemma.split(" ")) {
+            s.add(normalizeNonLetters(token));
+        }
+
+        return s;
     }
 
     private static boolean hasCapitalizedLetter(@NotNull final Word word) {
@@ -72,48 +102,193 @@ public class WordNetUtilities {
         return false;
     }
 
-    public static Map<String, Synset> phrasesToWords(@NotNull final Dictionary dictionary) {
-        final ImmutableMap.Builder<String, Synset> phraseToWord = new ImmutableMap.Builder<>();
-        final Set<IndexWord> s = POS.getAllPOS().stream()
-                .flatMap(p -> toStream(getIndexWordIteratorUnchecked(dictionary, p)))
+    public static @NotNull
+    Set<Word> synonyms(@NotNull final IndexWord w) {
+        return w.getSenses().stream()
+                .flatMap(x -> x.getWords().stream())
                 .collect(Collectors.toSet());
-        s.forEach(word -> {
-            final List<Synset> senses = word.getSenses();
-            for (final Synset synset : senses) {
-                final List<Word> synonyms = synset.getWords();
-                final Set<Word> multiwordSynonyms = new HashSet<>();
-                final Set<Word> singleWordSynonyms = new HashSet<>();
-                for (final Word synonym : synonyms) {
-                    if (hasCapitalizedLetter(synonym)) {
-                        continue;
-                    }
-
-                    final String lemma = synonym.getLemma();
-                    if (lemma.contains(" ")) {
-                        multiwordSynonyms.add(synonym);
-                    } else {
-                        singleWordSynonyms.add(synonym);
-                    }
-                }
+    }
+
+    public static @NotNull
+    List<Word> synonymsAsList(@NotNull final IndexWord w) {
+        final Set<Word> words = synonyms(w);
+        final List<Word> l = new ArrayList<>(words);
+        l.sort(Comparator.comparing(Word::getLemma));
+        return l;
+    }
+
+    public static @NotNull
+    List<PointerTarget> getTargetsUnchecked(@NotNull final Synset s, @NotNull final PointerType t) {
+        try {
+            return s.getTargets(t);
+        } catch (final JWNLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Tells whether any sense has a pointer of the type, without loading the synsets the pointers lead to.
+    public static boolean hasTargets(@NotNull final IndexWord m, @NotNull final PointerType type) {
+        return m.getSenses().stream().anyMatch(x -> !x.getPointers(type).isEmpty());
+    }
+
+    public static @NotNull
+    List<Word> targetsAsList(@NotNull final IndexWord m, @NotNull final PointerType type) {
+        return m.getSenses().stream()
+                .flatMap(x -> getTargetsUnchecked(x, type).stream())
+                .map(PointerTarget::getSynset)
+                .flatMap(x -> x.getWords().stream())
+                .distinct()
+                .sorted(Comparator.comparing(Word::getLemma))
+                .collect(Collectors.toList());
+    }
+
+    public static @NotNull Iterator<Synset> getSynsetIteratorUnchecked(@NotNull final Dictionary dictionary, @NotNull final POS p) {
+        try {
+            return dictionary.getSynsetIterator(p);
+        } catch (final JWNLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Returns the multi-word synonyms in the synset that have a single-word synonym which is not just one of their own
+    // words.
+    private static @NotNull
+    List<String> wordyPhrases(@NotNull final Synset synset) {
+        final List<String> multiwordSynonyms = new ArrayList<>();
+        final List<String> singleWordSynonyms = new ArrayList<>();
+        for (final Word synonym : synset.getWords()) {
+            if (hasCapitalizedLetter(synonym)) {
+                continue;
+            }
+
+            final String lemma = synonym.getLemma();
+            if (lemma.indexOf(' ') >= 0) {
+                multiwordSynonyms.add(lemma);
+            } else {
+                singleWordSynonyms.add(lemma);
+            }
+        }
+
+        if (multiwordSynonyms.isEmpty() || singleWordSynonyms.isEmpty()) {
+            return List.of();
+        }
+
+        final Set<String> multiwordTokens = new HashSet<>();
+        for (final String multiwordSynonym : multiwordSynonyms) {
+            multiwordTokens.addAll(tokens(multiwordSynonym));
+        }
+
+        for (final String singleWordSynonym : singleWordSynonyms) {
+            if (!multiwordTokens.contains(singleWordSynonym)) {
+                return multiwordSynonyms;
+            }
+        }
+
+        return List.of();
+    }
 
-                final Set<Word> singlesToRemove = new HashSet<>();
-                for (final Word multiwordSynonym : multiwordSynonyms) {
-                    for (final Word singleWordSynoym : singleWordSynonyms) {
-                        if (contains(multiwordSynonym, singleWordSynoym)) {
-                            singlesToRemove.add(singleWordSynoym);
-                        }
-                    }
+    // When a phrase occurs in several synsets, the one that comes first in dictionary order is kept.
+    private static @NotNull
+    Synset first(@NotNull final Synset a, @NotNull final Synset b) {
+        final int c = Integer.compare(parts.indexOf(a.getPOS()), parts.indexOf(b.getPOS()));
+        return c < 0 || (c == 0 && a.getOffset() <= b.getOffset()) ? a : b;
+    }
+
+    // Maps each WordNet phrase that has a more concise single-word synonym to its synset. Every synset is visited once,
+    // straight from the dictionary's synset iterators, and the synsets are examined in parallel on the common fork/join
+    // pool.
+    public static @NotNull
+    Map<String, Synset> phrasesToWords(@NotNull final Dictionary dictionary) {
+        final Iterator<Synset> synsets =
+                Iterators.concat(parts.stream().map(p -> getSynsetIteratorUnchecked(dictionary, p)).iterator());
+        final Map<String, Synset> m = StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(synsets, Spliterator.NONNULL), true)
+                .flatMap(synset -> wordyPhrases(synset).stream().map(phrase -> Map.entry(phrase, synset)))
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue,
+                        WordNetUtilities::first));
+        return ImmutableMap.copyOf(m);
+    }
+
+    // Writes the phrases with the part of speech and offset of their synsets.
+    public static void savePhrasesToWords(@NotNull final Map<String, Synset> phrasesToWords, @NotNull final Path file)
+            throws IOException {
+        final Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), phrasesFileName, ".tmp");
+        try (final DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(phrasesMagic);
+            out.writeInt(phrasesVersion);
+            out.writeInt(phrasesToWords.size());
+            for (final Map.Entry<String, Synset> e : phrasesToWords.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeByte(parts.indexOf(e.getValue().getPOS()));
+                out.writeLong(e.getValue().getOffset());
+            }
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a map written by savePhrasesToWords, resolving every synset once while it is read.
+    public static @NotNull
+    Map<String, Synset> loadPhrasesToWords(@NotNull final Dictionary dictionary, @NotNull final Path file)
+            throws IOException {
+        final ImmutableMap.Builder<String, Synset> phrasesToWords = new ImmutableMap.Builder<>();
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != phrasesMagic || in.readInt() != phrasesVersion) {
+                throw new IOException("not a phrase file");
+            }
+
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String phrase = in.readUTF();
+                final int part = in.readByte();
+                if (part < 0 || part >= parts.size()) {
+                    throw new IOException("bad part of speech " + part);
                 }
 
-                singleWordSynonyms.removeAll(singlesToRemove);
+                final POS pos = parts.get(part);
+                final long offset = in.readLong();
+                final Synset synset;
+                try {
+                    synset = dictionary.getSynsetAt(pos, offset);
+                } catch (final JWNLException e) {
+                    throw new IOException(e);
+                }
 
-                if (!multiwordSynonyms.isEmpty() && !singleWordSynonyms.isEmpty()) {
-                    multiwordSynonyms.forEach(mw -> phraseToWord.put(mw.getLemma(), synset));
+                if (synset == null) {
+                    throw new IOException("no " + pos.getLabel() + " synset at " + offset);
                 }
+
+                phrasesToWords.put(phrase, synset);
             }
-        });
+        }
+
+        return phrasesToWords.build();
+    }
+
+    // The phrases are computed from a dictionary of their own, as that walks all of WordNet, and then read back so that
+    // the synsets returned belong to the caller's dictionary.
+    public static @NotNull
+    Map<String, Synset> loadOrComputePhrasesToWords(@NotNull final Dictionary dictionary, @NotNull final Path file)
+            throws IOException {
+        if (Files.exists(file)) {
+            try {
+                return loadPhrasesToWords(dictionary, file);
+            } catch (final IOException e) {
+                System.err.println("recomputing " + file + ": " + e);
+            }
+        }
+
+        try {
+            savePhrasesToWords(phrasesToWords(Dictionary.getDefaultResourceInstance()), file);
+        } catch (final JWNLException e) {
+            throw new IOException(e);
+        }
 
-        return phraseToWord.build();
+        return loadPhrasesToWords(dictionary, file);
     }
 
 }
@@ -0,0 +1,99 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class AnalysisServerTest {
+
+    private static AnalysisServer server;
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeClass
+    public static void startServer() throws IOException, JWNLException {
+        server = new AnalysisServer(0, Dictionary.getDefaultResourceInstance(), new LanguageToolPool(2));
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop();
+    }
+
+    private static HttpResponse<String> send(final HttpRequest.Builder request)
+            throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder request(final String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + pathAndQuery));
+    }
+
+    @Test
+    public void testCheck() throws IOException, InterruptedException {
+        final HttpResponse<String> response =
+                send(request("/check").POST(HttpRequest.BodyPublishers.ofString("This is a example.")));
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        final String body = response.body();
+        assertTrue(body, body.startsWith("{\"matches\":["));
+        assertTrue(body, body.contains("{\"offset\":8,\"length\":1,\"rule\":\"EN_A_VS_AN\""));
+
+        assertEquals(405, send(request("/check").GET()).statusCode());
+    }
+
+    @Test
+    public void testCheckFindsWordyPhrases() throws IOException, InterruptedException {
+        final HttpResponse<String> response =
+                send(request("/check").POST(HttpRequest.BodyPublishers.ofString("They sang at the same time.")));
+        assertEquals(200, response.statusCode());
+        final String body = response.body();
+        assertTrue(body, body.contains("{\"offset\":10,\"length\":16,\"rule\":\"WORDY_PHRASE\""));
+    }
+
+    @Test
+    public void testLookup() throws IOException, InterruptedException {
+        final HttpResponse<String> response = send(request("/lookup?word=dogs").GET());
+        assertEquals(200, response.statusCode());
+        final String body = response.body();
+        assertTrue(body, body.startsWith("{\"word\":\"dogs\",\"entries\":["));
+        assertTrue(body, body.contains("{\"lemma\":\"dog\",\"pos\":\"noun\""));
+        for (final String key : new String[]{"synonyms", "antonyms", "hypernyms", "categories", "categoryMembers"}) {
+            assertTrue(key, body.contains("\"" + key + "\":["));
+        }
+
+        assertTrue(body, body.contains("\"canine\""));
+        assertEquals(400, send(request("/lookup").GET()).statusCode());
+        assertEquals(400, send(request("/lookup?word=%20").GET()).statusCode());
+    }
+
+    @Test
+    public void testRelated() throws IOException, InterruptedException {
+        // The relation graph is built in the background, and /related answers 503 until it is ready.
+        final long deadline = System.currentTimeMillis() + 120_000;
+        HttpResponse<String> response = send(request("/related?word=dogs&type=hypernym&hops=1").GET());
+        while (response.statusCode() == 503 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(500);
+            response = send(request("/related?word=dogs&type=hypernym&hops=1").GET());
+        }
+
+        assertEquals(200, response.statusCode());
+        final String body = response.body();
+        assertTrue(body, body.startsWith("{\"word\":\"dogs\",\"type\":\"hypernym\",\"hops\":1,\"related\":["));
+        assertTrue(body, body.contains("\"canine\""));
+        assertEquals(400, send(request("/related?word=dog&hops=0").GET()).statusCode());
+        assertEquals(400, send(request("/related?word=dog&type=nonsense").GET()).statusCode());
+    }
+
+}
@@ -10,6 +10,9 @@ import net.sf.extjwnl.data.Synset;
 import net.sf.extjwnl.dictionary.Dictionary;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -18,10 +21,22 @@ import java.util.stream.Collectors;
 public class AppTest {
 
     @Test
-    public void testWordySynonyms() throws JWNLException {
+    public void testWordySynonyms() throws JWNLException, IOException {
         final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
-//        final Map<String, Synset> phraseToWord = WordNetUtilities.phrasesToWords(dictionary);
-//        System.out.println("phraseToWord=" + phraseToWord);
+        final Map<String, Synset> phraseToWord = WordNetUtilities.phrasesToWords(dictionary);
+        assertTrue(!phraseToWord.isEmpty());
+        phraseToWord.keySet().forEach(phrase -> assertTrue(phrase, phrase.contains(" ")));
+
+        final Path file = Files.createTempFile("phrases", ".bin");
+        try {
+            WordNetUtilities.savePhrasesToWords(phraseToWord, file);
+            final Map<String, Synset> loaded = WordNetUtilities.loadPhrasesToWords(dictionary, file);
+            assertEquals(phraseToWord.keySet(), loaded.keySet());
+            phraseToWord.keySet().stream().limit(100).forEach(phrase ->
+                    assertEquals(phrase, phraseToWord.get(phrase).getOffset(), loaded.get(phrase).getOffset()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
     }
 
     //@Test
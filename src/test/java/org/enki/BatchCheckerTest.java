@@ -0,0 +1,91 @@
+package org.enki;
+
+import static org.enki.TestMatches.match;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BatchCheckerTest {
+
+    // A match over the first word of each paragraph, with a message that needs escaping.
+    private static List<RuleMatch> firstWord(final String paragraph) {
+        final int end = paragraph.indexOf(' ');
+        final RuleMatch m = match(0, end, "\"" + paragraph.substring(0, end) + "\"\n");
+        m.setSuggestedReplacements(List.of("x\\y"));
+        return List.of(m);
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        final Path directory = Files.createTempDirectory("BatchCheckerTest");
+        final Path a = directory.resolve("a.txt");
+        final Path b = directory.resolve("b.md");
+        Files.writeString(a, "One two.\n\nThree four.");
+        Files.writeString(b, "Caf\u00e9 five.");
+        // Not a text file, so it is not taken from the directory.
+        Files.write(directory.resolve("c.bin"), new byte[]{0, 1, 2, (byte) 0xff});
+        // Named like text but not valid UTF-8, so it is skipped rather than counted as a failure.
+        Files.write(directory.resolve("d.txt"), new byte[]{'a', ' ', (byte) 0xff, (byte) 0xfe});
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final BatchChecker checker = new BatchChecker(BatchCheckerTest::firstWord, 2, StandardCharsets.UTF_8, out,
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+        assertEquals(0, checker.check(List.of(directory)));
+
+        final List<String> lines = out.toString(StandardCharsets.UTF_8).lines().sorted().collect(Collectors.toList());
+        assertEquals(List.of(
+                "{\"file\":" + Json.quote(a.toString()) + ",\"offset\":0,\"length\":3,\"rule\":\"TEST\"," +
+                        "\"type\":\"Other\",\"message\":\"\\\"One\\\"\\n\",\"suggestions\":[\"x\\\\y\"]}",
+                "{\"file\":" + Json.quote(a.toString()) + ",\"offset\":10,\"length\":5,\"rule\":\"TEST\"," +
+                        "\"type\":\"Other\",\"message\":\"\\\"Three\\\"\\n\",\"suggestions\":[\"x\\\\y\"]}",
+                "{\"file\":" + Json.quote(b.toString()) + ",\"offset\":0,\"length\":4,\"rule\":\"TEST\"," +
+                        "\"type\":\"Other\",\"message\":\"\\\"Caf\u00e9\\\"\\n\",\"suggestions\":[\"x\\\\y\"]}"
+        ).stream().sorted().collect(Collectors.toList()), lines);
+
+        final String log = err.toString(StandardCharsets.UTF_8);
+        assertTrue(log, log.contains("d.txt: skipped, not UTF-8 text"));
+        assertTrue(log, log.contains("checked 2 files (6 words, 3 matches, 1 skipped)"));
+    }
+
+    @Test
+    public void testEachFileWrittenTogether() throws IOException {
+        final Path directory = Files.createTempDirectory("BatchCheckerTest");
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(directory.resolve("f" + i + ".txt"), "One two.\n\nThree four.\n\nFive six.");
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BatchChecker checker = new BatchChecker(BatchCheckerTest::firstWord, 3, StandardCharsets.UTF_8, out,
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        assertEquals(0, checker.check(List.of(directory)));
+
+        // Each file's three matches are consecutive and in order.
+        final List<String> lines = out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        assertEquals(60, lines.size());
+        for (int i = 0; i < lines.size(); i += 3) {
+            final String file = lines.get(i).substring(0, lines.get(i).indexOf(",\"offset\""));
+            assertTrue(lines.get(i), lines.get(i).startsWith(file + ",\"offset\":0,"));
+            assertTrue(lines.get(i + 1), lines.get(i + 1).startsWith(file + ",\"offset\":10,"));
+            assertTrue(lines.get(i + 2), lines.get(i + 2).startsWith(file + ",\"offset\":23,"));
+        }
+    }
+
+    @Test
+    public void testIsText() {
+        assertTrue(BatchChecker.isText(Path.of("notes.TXT")));
+        assertTrue(BatchChecker.isText(Path.of("README.md")));
+    }
+
+}
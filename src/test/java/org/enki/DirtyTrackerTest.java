@@ -0,0 +1,50 @@
+package org.enki;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DirtyTrackerTest {
+
+    @Test
+    public void testUndoRedo() {
+        final DirtyTracker tracker = new DirtyTracker();
+        assertFalse(tracker.isClean());
+        tracker.saved("abc");
+        assertTrue(tracker.isClean());
+
+        final long before = tracker.state();
+        final long after = tracker.edited();
+        assertFalse(tracker.isClean());
+        tracker.moveTo(before);
+        assertTrue(tracker.isClean());
+        tracker.moveTo(after);
+        assertFalse(tracker.isClean());
+    }
+
+    @Test
+    public void testReconverge() {
+        final DirtyTracker tracker = new DirtyTracker();
+        tracker.saved("abc");
+        tracker.edited();
+        assertFalse(tracker.mayBeClean(2));
+        assertTrue(tracker.mayBeClean(3));
+        assertFalse(tracker.reconcile("abd"));
+        assertTrue(tracker.reconcile("abc"));
+        assertTrue(tracker.isClean());
+    }
+
+    @Test
+    public void testReconcileIgnoresStaleDigest() {
+        final DirtyTracker tracker = new DirtyTracker();
+        tracker.saved("abc");
+        final long state = tracker.edited();
+        final byte[] digest = DirtyTracker.digest("abc");
+        tracker.edited();
+        assertFalse(tracker.reconcile(state, 3, digest));
+        tracker.moveTo(state);
+        assertTrue(tracker.reconcile(state, 3, digest));
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DocumentStatisticsTest {
+
+    private static final String[] fragments = {
+            " ", "  ", "\n", "\r\n", "\t", "word", "http://", "https://example.com/a", "x", "http", ".", "\u0001",
+            "example.com", "(", "/", "\u65e5\u672c", "\ud83d\udc4d", "\ud83c\udffd", "\u200d", "\ufe0f", "\ud83c\uddfa"
+    };
+
+    private static void assertSame(final DocumentStatistics statistics, final String text) {
+        assertEquals(text.length(), statistics.characters());
+        assertEquals(App.wordCount(text), statistics.words());
+        assertEquals(App.getTwitterCharacters(text), statistics.twitterCharacters());
+    }
+
+    @Test
+    public void testAgainstFullCount() {
+        final Random random = new Random(42);
+        final StringBuilder text = new StringBuilder();
+        final DocumentStatistics statistics = new DocumentStatistics(text);
+        for (int i = 0; i < 5000; i++) {
+            if (text.length() > 0 && random.nextInt(3) == 0) {
+                final int offset = random.nextInt(text.length());
+                final int length = 1 + random.nextInt(Math.min(10, text.length() - offset));
+                statistics.beforeRemove(text, offset, length);
+                text.delete(offset, offset + length);
+                statistics.removed(text, offset, length);
+            } else {
+                final int offset = random.nextInt(text.length() + 1);
+                final String fragment = fragments[random.nextInt(fragments.length)];
+                text.insert(offset, fragment);
+                statistics.inserted(text, offset, fragment.length());
+            }
+
+            assertSame(statistics, text.toString());
+        }
+    }
+
+    @Test
+    public void testUnannouncedRemoval() {
+        final StringBuilder text = new StringBuilder("see https://example.com now");
+        final DocumentStatistics statistics = new DocumentStatistics(text);
+        text.delete(0, 4);
+        statistics.removed(text, 0, 4);
+        assertSame(statistics, text.toString());
+    }
+
+}
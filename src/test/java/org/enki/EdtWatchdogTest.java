@@ -0,0 +1,72 @@
+package org.enki;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import javax.swing.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+public class EdtWatchdogTest {
+
+    @Test
+    public void testStallIsLogged() throws Exception {
+        final Path directory = Files.createTempDirectory("watchdog");
+        final Path log = directory.resolve(EdtWatchdog.logFileName);
+        final EdtWatchdog watchdog = new EdtWatchdog(50, () -> "test context", log);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            watchdog.start();
+            SwingUtilities.invokeAndWait(() -> {
+            });
+            SwingUtilities.invokeLater(() -> stall(release));
+
+            // The stall is reported while the EDT is still stuck. The report is complete when it ends with a blank
+            // line.
+            String report = awaitLog(log, "\n\n");
+            assertTrue(report, report.contains("EDT stalled for"));
+            assertTrue(report, report.contains("context: test context"));
+            assertTrue(report, report.contains("EdtWatchdogTest.stall"));
+            assertTrue(report, report.contains("event: invocation of"));
+            assertFalse(report, report.contains("EDT recovered after"));
+
+            release.countDown();
+            report = awaitLog(log, "EDT recovered after");
+            assertTrue(report, report.contains("EDT recovered after"));
+
+            watchdog.stop();
+            assertFalse(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().equals("EDT watchdog")));
+            SwingUtilities.invokeAndWait(() -> {
+            });
+        } finally {
+            release.countDown();
+            watchdog.stop();
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static String awaitLog(final Path log, final String expected) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5000;
+        String contents = "";
+        while (!contents.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            contents = Files.exists(log) ? Files.readString(log, StandardCharsets.UTF_8) : "";
+        }
+
+        return contents;
+    }
+
+    private static void stall(final CountDownLatch release) {
+        try {
+            release.await();
+        } catch (final InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.enki;
+
+import static org.enki.TestMatches.match;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.languagetool.JLanguageTool;
+import org.languagetool.language.AmericanEnglish;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+public class IncrementalCheckerTest {
+
+    // A match over the first character of the paragraph.
+    private static List<RuleMatch> firstCharacter() {
+        return List.of(match(0, 1, "message"));
+    }
+
+    private static List<String> paragraphTexts(final String text) {
+        return IncrementalChecker.paragraphs(text).stream().map(IncrementalChecker.Paragraph::text)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testParagraphs() {
+        assertEquals(List.of(), paragraphTexts(""));
+        assertEquals(List.of(), paragraphTexts("\n\r\n\n"));
+        // Hard-wrapped lines are one paragraph.
+        assertEquals(List.of("one\ntwo", "three\r\nfour"), paragraphTexts("one\ntwo\n\nthree\r\nfour"));
+        assertEquals(List.of("one", "two"), paragraphTexts("\r\none\r\n\r\n\r\ntwo"));
+        assertEquals(List.of("one\n"), paragraphTexts("one\n"));
+
+        final String text = "\nab\ncd\r\n\r\nef";
+        for (final IncrementalChecker.Paragraph p : IncrementalChecker.paragraphs(text)) {
+            assertEquals(p.text(), text.substring(p.start(), p.start() + p.text().length()));
+        }
+    }
+
+    @Test
+    public void testRebase() {
+        final RuleMatch m = match(2, 5, "message");
+        final RuleMatch rebased = IncrementalChecker.rebase(m, 10);
+        assertEquals(12, rebased.getFromPos());
+        assertEquals(15, rebased.getToPos());
+        assertEquals(2, m.getFromPos());
+    }
+
+    @Test
+    public void testOnlyChangedParagraphsAreChecked() throws Exception {
+        final List<String> submitted = new CopyOnWriteArrayList<>();
+        final IncrementalChecker checker = new IncrementalChecker(paragraph -> {
+            submitted.add(paragraph);
+            return CompletableFuture.completedFuture(firstCharacter());
+        }, () -> null);
+
+        assertEquals(List.of(0, 9), checker.check("one\ntwo\n\nthree").stream().map(RuleMatch::getFromPos)
+                .collect(Collectors.toList()));
+        submitted.clear();
+        // A repeated paragraph is checked once, and moving a paragraph does not check it again.
+        assertEquals(List.of(0, 7, 16), checker.check("three\n\none\ntwo\n\none\ntwo").stream()
+                .map(RuleMatch::getFromPos).collect(Collectors.toList()));
+        assertEquals(List.of(), submitted);
+        checker.check("one\ntwo!\n\nthree");
+        assertEquals(List.of("one\ntwo!"), submitted);
+    }
+
+    private static Set<String> describe(final List<RuleMatch> matches) {
+        return matches.stream().map(m -> m.getRule().getId() + "@" + m.getFromPos() + "-" + m.getToPos())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    // The same matches as LanguageTool finds in the whole text, including across hard-wrapped lines.
+    @Test
+    public void testAgainstWholeDocument() throws IOException {
+        final String wrapped = "This is a example of hard wrapped text, where a sentence runs\n" +
+                "across the end of a line and their is a mistake in it. the\n" +
+                "next sentence start on the following line.\n\n" +
+                "A second paragraph has an another mistake, and it it repeats a word.\n";
+        final JLanguageTool languageTool = new JLanguageTool(new AmericanEnglish());
+        final IncrementalChecker checker = new IncrementalChecker(new LanguageToolPool(2));
+        for (final String text : List.of(wrapped, wrapped.replace("\n", "\r\n"))) {
+            final List<RuleMatch> expected = languageTool.check(text);
+            assertTrue(!expected.isEmpty());
+            assertEquals(describe(expected), describe(checker.check(text)));
+        }
+    }
+
+    @Test
+    public void testInterruptedCheckKeepsProgress() throws Exception {
+        final Map<String, CompletableFuture<List<RuleMatch>>> futures = new ConcurrentHashMap<>();
+        final List<String> submitted = new CopyOnWriteArrayList<>();
+        final IncrementalChecker checker = new IncrementalChecker(paragraph -> {
+            submitted.add(paragraph);
+            return futures.computeIfAbsent(paragraph, x -> CompletableFuture.completedFuture(firstCharacter()));
+        }, () -> null);
+
+        // The first paragraph is done at once, the other two are still being checked when the check is interrupted.
+        futures.put("B.", new CompletableFuture<>());
+        futures.put("C.", new CompletableFuture<>());
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final Thread t = new Thread(() -> {
+            try {
+                checker.check("A.\n\nB.\n\nC.");
+            } catch (final Throwable e) {
+                thrown.set(e);
+            }
+        });
+        t.start();
+        while (submitted.size() < 3) {
+            Thread.sleep(1);
+        }
+
+        t.interrupt();
+        t.join();
+        assertTrue(String.valueOf(thrown.get()), thrown.get() instanceof InterruptedIOException);
+        assertEquals(List.of("A.", "B.", "C."), submitted.stream().sorted().collect(Collectors.toList()));
+
+        // B finishes after the interruption and C is edited into D. Only D needs checking, and C is abandoned.
+        futures.get("B.").complete(firstCharacter());
+        submitted.clear();
+        final List<RuleMatch> matches = checker.check("A.\n\nB.\n\nD.");
+        assertEquals(List.of("D."), submitted);
+        assertTrue(futures.get("C.").isCancelled());
+        assertEquals(List.of(0, 4, 8), matches.stream().map(RuleMatch::getFromPos).collect(Collectors.toList()));
+
+        // Nothing changed, so nothing is submitted.
+        submitted.clear();
+        checker.check("A.\n\nB.\n\nD.");
+        assertEquals(List.of(), submitted);
+    }
+
+}
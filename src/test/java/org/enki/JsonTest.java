@@ -0,0 +1,28 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class JsonTest {
+
+    @Test
+    public void testQuote() {
+        assertEquals("\"\"", Json.quote(""));
+        assertEquals("\"plain text\"", Json.quote("plain text"));
+        assertEquals("\"a \\\"quoted\\\" back\\\\slash\"", Json.quote("a \"quoted\" back\\slash"));
+        assertEquals("\"line\\nbreak\\r\\n\\ttab\"", Json.quote("line\nbreak\r\n\ttab"));
+        assertEquals("\"\\u0000\\u0008\\u001f \"", Json.quote("\u0000\b\u001f\u0020"));
+        // Characters beyond ASCII, including surrogate pairs, are valid JSON as they are.
+        assertEquals("\"caf\u00e9 \ud83d\ude00 \u2028\"", Json.quote("caf\u00e9 \ud83d\ude00 \u2028"));
+    }
+
+    @Test
+    public void testQuoteList() {
+        assertEquals("[]", Json.appendQuoted(new StringBuilder(), List.of()).toString());
+        assertEquals("[\"a\",\"b\\\"c\"]", Json.appendQuoted(new StringBuilder(), List.of("a", "b\"c")).toString());
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        int previous = -1;
+        for (long nanos = 0; nanos < 100_000; nanos++) {
+            final int bucket = LatencyHistogram.bucket(nanos);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(nanos <= LatencyHistogram.upperBound(bucket));
+            assertTrue(LatencyHistogram.upperBound(bucket) <= nanos + nanos / 8);
+            previous = bucket;
+        }
+
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testSummary() {
+        final LatencyHistogram h = new LatencyHistogram("test");
+        assertEquals(new LatencyHistogram.Summary(0, 0, 0, 0, 0), h.summary());
+
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+
+        final LatencyHistogram.Summary s = h.summary();
+        assertEquals(1000, s.count());
+        assertEquals(500_500.0, s.meanNanos(), 0.0);
+        assertEquals(1_000_000, s.maxNanos());
+        assertTrue(s.p50Nanos() >= 500_000 && s.p50Nanos() <= 500_000 * 9 / 8);
+        assertTrue(s.p99Nanos() >= 990_000 && s.p99Nanos() <= 1_000_000);
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+public class LexiconTest {
+
+    @Test
+    public void testMatchesDictionary() throws IOException, JWNLException {
+        final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
+        final Path file = Files.createTempFile("lexicon", ".bin");
+        try {
+            Lexicon.build(dictionary, file);
+            final Lexicon lexicon = Lexicon.open(dictionary, file);
+            for (final String word : new String[]{"run", "Running", "geese", "better", "went", "boxes", "hot dog",
+                    "the", "xyzzy", ""}) {
+                final Map<POS, IndexWord> expected = App.lookup(dictionary, word);
+                final Map<POS, IndexWord> actual = lexicon.lookup(word);
+                assertEquals(word, expected.keySet(), actual.keySet());
+                for (final POS pos : expected.keySet()) {
+                    assertEquals(word, expected.get(pos).getLemma(), actual.get(pos).getLemma());
+                    assertEquals(word, Arrays.toString(expected.get(pos).getSynsetOffsets()),
+                            Arrays.toString(actual.get(pos).getSynsetOffsets()));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
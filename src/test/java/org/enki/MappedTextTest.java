@@ -0,0 +1,51 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedTextTest {
+
+    @Test
+    public void testPagesCoverFile() throws IOException {
+        final Path path = Files.createTempFile("MappedTextTest", ".txt");
+        // Lines of varying length, with multi-byte characters, and one line longer than a page.
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            b.append("line ").append(i).append(" caf\u00e9 \ud83d\ude00 ").append("x".repeat(i % 37)).append('\n');
+        }
+
+        b.append("\u00e9".repeat(MappedText.pageSize)).append('\n');
+        final String expected = b.toString();
+        Files.writeString(path, expected, StandardCharsets.UTF_8);
+
+        try (final MappedText text = MappedText.open(path, StandardCharsets.UTF_8)) {
+            final StringBuilder actual = new StringBuilder();
+            for (int page = 0; page < text.pageCount(); page++) {
+                final String decoded = text.decode(page, 1);
+                assertFalse(decoded.contains("\ufffd"));
+                actual.append(decoded);
+            }
+
+            assertEquals(expected, actual.toString());
+            assertEquals(text.decode(3, 2), text.decode(3, 1) + text.decode(4, 1));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testSupportedCharsets() {
+        assertTrue(MappedText.isSupported(StandardCharsets.UTF_8));
+        assertTrue(MappedText.isSupported(StandardCharsets.ISO_8859_1));
+        assertFalse(MappedText.isSupported(StandardCharsets.UTF_16));
+    }
+
+}
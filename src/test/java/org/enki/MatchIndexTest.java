@@ -0,0 +1,50 @@
+package org.enki;
+
+import static org.enki.TestMatches.match;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class MatchIndexTest {
+
+    @Test
+    public void testEmpty() {
+        assertEquals(-1, MatchIndex.EMPTY.first(0));
+        assertEquals(-1, MatchIndex.EMPTY.last(0));
+    }
+
+    @Test
+    public void testAgainstLinearScan() {
+        final Random random = new Random(42);
+        final List<RuleMatch> matches = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final int from = random.nextInt(10000);
+            matches.add(match(from, from + 1 + random.nextInt(200), "message"));
+        }
+
+        final MatchIndex index = new MatchIndex(matches);
+        for (int position = 0; position < 10300; position += 7) {
+            final TreeSet<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < matches.size(); i++) {
+                final RuleMatch m = matches.get(i);
+                if (position >= m.getFromPos() && position <= m.getToPos()) {
+                    expected.add(i);
+                }
+            }
+
+            final Set<Integer> actual = new TreeSet<>();
+            index.forEachCovering(position, actual::add);
+            assertEquals(expected, actual);
+            assertEquals(expected.isEmpty() ? -1 : (int) expected.first(), index.first(position));
+            assertEquals(expected.isEmpty() ? -1 : (int) expected.last(), index.last(position));
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.enki;
+
+import static org.enki.TestMatches.match;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.List;
+
+public class MatchListTest {
+
+    @Test
+    public void testLabels() {
+        final StringBuilder text = new StringBuilder("This is is a tset.");
+        final RuleMatch repeated = match(5, 10, "Use <suggestion>is</suggestion> once.");
+        final RuleMatch misspelled = match(13, 17, "Possible spelling mistake.");
+        final MatchList list = MatchList.of(List.of(repeated, misspelled), text);
+
+        // The labels are of the text that was checked, whatever happens to it afterwards.
+        text.setLength(0);
+        assertEquals(2, list.getSize());
+        assertSame(repeated, list.getElementAt(0));
+        assertEquals("is is: Use 'is' once.", list.label(0));
+        assertEquals("tset: Possible spelling mistake.", list.label(1));
+        assertEquals(1, list.index().first(13));
+    }
+
+    @Test
+    public void testMatchBeyondText() {
+        final MatchList list = MatchList.of(List.of(match(3, 10, "message")), "abcdef");
+        assertEquals("def: message", list.label(0));
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+
+import net.sf.extjwnl.data.Synset;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PhraseMatcherTest {
+
+    private static PhraseMatcher matcher(final String... phrases) {
+        final Map<String, Synset> m = new HashMap<>();
+        for (final String phrase : phrases) {
+            m.put(phrase, null);
+        }
+
+        return new PhraseMatcher(m);
+    }
+
+    @Test
+    public void testFind() {
+        final PhraseMatcher matcher = matcher("in the afternoon", "the afternoon tea", "at the same time", "catch 22");
+        final String text = "Meet me at 5 PM in the Afternoon, or in the afternoon tea room at the same time.";
+        final List<PhraseMatcher.Hit> hits = matcher.find(text);
+        assertEquals(List.of(
+                new PhraseMatcher.Hit(16, 32, "in the afternoon"),
+                new PhraseMatcher.Hit(37, 53, "in the afternoon"),
+                new PhraseMatcher.Hit(40, 57, "the afternoon tea"),
+                new PhraseMatcher.Hit(63, 79, "at the same time")), hits);
+        assertEquals("in the Afternoon", text.substring(16, 32));
+    }
+
+    @Test
+    public void testPunctuation() {
+        final PhraseMatcher matcher = matcher("in the afternoon");
+        // Attached punctuation is left out of a hit.
+        assertEquals(List.of(new PhraseMatcher.Hit(1, 17, "in the afternoon")), matcher.find("(in the afternoon)."));
+        // A phrase does not run across the end of a sentence, even inside quotes.
+        assertEquals(List.of(), matcher.find("Come in the. Afternoon is best."));
+        assertEquals(List.of(), matcher.find("He said \"come in the!\" afternoon"));
+        assertEquals(List.of(new PhraseMatcher.Hit(6, 22, "in the afternoon")),
+                matcher.find("Late. in the afternoon."));
+    }
+
+    @Test
+    public void testNoPhrases() {
+        assertEquals(List.of(), matcher().find("in the afternoon"));
+        assertEquals(List.of(), matcher("catch 22").find("catch 22"));
+    }
+
+    @Test
+    public void testFailureLinks() {
+        final PhraseMatcher matcher = matcher("a b c d", "b c e");
+        assertEquals(List.of(new PhraseMatcher.Hit(2, 7, "b c e")), matcher.find("a b c e"));
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.StringContent;
+import javax.swing.undo.UndoableEdit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PieceTableContentTest {
+
+    private static String text(final AbstractDocument.Content content) throws BadLocationException {
+        return content.getString(0, content.length());
+    }
+
+    private static void assertSame(final AbstractDocument.Content reference, final AbstractDocument.Content pieces,
+                                   final List<Position> referencePositions, final List<Position> piecePositions)
+            throws BadLocationException {
+        assertEquals(text(reference), text(pieces));
+        for (int p = 0; p < piecePositions.size(); p++) {
+            assertEquals(referencePositions.get(p).getOffset(), piecePositions.get(p).getOffset());
+        }
+    }
+
+    // StringContent is the simplest Content in the JDK and has the position semantics that PieceTableContent follows.
+    @Test
+    public void testAgainstStringContent() throws BadLocationException {
+        final Random random = new Random(42);
+        final PieceTableContent pieces = new PieceTableContent();
+        final StringContent reference = new StringContent();
+        final List<Position> piecePositions = new ArrayList<>();
+        final List<Position> referencePositions = new ArrayList<>();
+        final List<PieceTableContent.Snapshot> snapshots = new ArrayList<>();
+        final List<String> expectedSnapshots = new ArrayList<>();
+        final List<UndoableEdit> pieceEdits = new ArrayList<>();
+        final List<UndoableEdit> referenceEdits = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            final int length = reference.length();
+            final int operation = random.nextInt(11);
+            if (operation < 5) {
+                // Mostly typing near the previous edit, sometimes a jump, sometimes a large paste.
+                final int where = random.nextInt(length);
+                final String s = random.nextInt(50) == 0 ? "x".repeat(40000) : "ab\nc".substring(random.nextInt(4));
+                pieceEdits.add(pieces.insertString(where, s));
+                referenceEdits.add(reference.insertString(where, s));
+            } else if (operation < 8 && length > 1) {
+                final int where = random.nextInt(length - 1);
+                final int n = random.nextInt(Math.min(20, length - 1 - where) + 1);
+                pieceEdits.add(pieces.remove(where, n));
+                referenceEdits.add(reference.remove(where, n));
+            } else if (operation == 10) {
+                // Undo the last few edits, checking the text and positions after each, then redo some of them.
+                final int n = Math.min(pieceEdits.size(), 1 + random.nextInt(4));
+                final int last = pieceEdits.size() - 1;
+                for (int k = 0; k < n; k++) {
+                    pieceEdits.get(last - k).undo();
+                    referenceEdits.get(last - k).undo();
+                    assertSame(reference, pieces, referencePositions, piecePositions);
+                }
+
+                final int redone = random.nextInt(n + 1);
+                for (int k = n - 1; k >= n - redone; k--) {
+                    pieceEdits.get(last - k).redo();
+                    referenceEdits.get(last - k).redo();
+                    assertSame(reference, pieces, referencePositions, piecePositions);
+                }
+
+                // Edits that stay undone cannot be undone again.
+                for (int k = 0; k < n - redone; k++) {
+                    pieceEdits.remove(pieceEdits.size() - 1);
+                    referenceEdits.remove(referenceEdits.size() - 1);
+                }
+            } else if (operation == 8) {
+                final int offset = random.nextInt(length + 1);
+                piecePositions.add(pieces.createPosition(offset));
+                referencePositions.add(reference.createPosition(offset));
+            } else {
+                final int start = random.nextInt(length);
+                final int end = start + random.nextInt(length - start);
+                snapshots.add(pieces.snapshot(start, end));
+                expectedSnapshots.add(reference.getString(start, end - start));
+            }
+
+            assertSame(reference, pieces, referencePositions, piecePositions);
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expectedSnapshots.get(i), snapshots.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testUndoRedo() throws BadLocationException {
+        final PieceTableContent content = new PieceTableContent();
+        content.insertString(0, "hello world");
+        final UndoableEdit remove = content.remove(5, 6);
+        final UndoableEdit insert = content.insertString(5, ", there");
+        assertEquals("hello, there\n", text(content));
+        insert.undo();
+        remove.undo();
+        assertEquals("hello world\n", text(content));
+        remove.redo();
+        insert.redo();
+        assertEquals("hello, there\n", text(content));
+    }
+
+    @Test
+    public void testUndoRestoresCollapsedPositions() throws BadLocationException {
+        final PieceTableContent content = new PieceTableContent();
+        content.insertString(0, "hello world");
+        final Position start = content.createPosition(5);
+        final Position inside = content.createPosition(8);
+        final Position end = content.createPosition(11);
+        final UndoableEdit remove = content.remove(5, 6);
+        assertEquals(5, inside.getOffset());
+        remove.undo();
+        assertEquals(List.of(5, 8, 11), List.of(start.getOffset(), inside.getOffset(), end.getOffset()));
+        remove.redo();
+        remove.undo();
+        assertEquals(List.of(5, 8, 11), List.of(start.getOffset(), inside.getOffset(), end.getOffset()));
+
+        final UndoableEdit insert = content.insertString(0, "oh ");
+        final Position o = content.createPosition(1);
+        insert.undo();
+        assertEquals(0, o.getOffset());
+        insert.redo();
+        assertEquals(1, o.getOffset());
+    }
+
+    @Test
+    public void testPartialReturn() throws BadLocationException {
+        final PieceTableContent content = new PieceTableContent();
+        content.insertString(0, "world");
+        content.insertString(0, "hello ");
+        final Segment segment = new Segment();
+        segment.setPartialReturn(true);
+        content.getChars(3, 5, segment);
+        assertEquals("lo ", segment.toString());
+        segment.setPartialReturn(false);
+        content.getChars(3, 5, segment);
+        assertEquals("lo wo", segment.toString());
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.data.PointerType;
+import net.sf.extjwnl.data.Word;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class RelationGraphTest {
+
+    private static Set<String> lemmas(final Collection<Word> words) {
+        return words.stream().map(Word::getLemma).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Test
+    public void testAgainstWordNetUtilities() throws JWNLException {
+        final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
+        final RelationGraph graph = RelationGraph.build(dictionary);
+        assertTrue(graph.synsetCount() > 100_000);
+
+        for (final String s : List.of("dog", "happy", "run", "quickly", "good", "computer science", "turkey")) {
+            for (final IndexWord w : App.lookupAsList(dictionary, s)) {
+                final String name = s + " " + w.getPOS().getLabel();
+                final int indexWord = graph.indexWordId(w.getPOS(), w.getLemma());
+                assertTrue(name, indexWord != -1);
+                assertEquals(name, w.getSenses().size(), graph.synsets(indexWord).length);
+                assertEquals(name, lemmas(WordNetUtilities.synonymsAsList(w)),
+                        new TreeSet<>(graph.lemmas(graph.synonyms(indexWord))));
+                assertEquals(name, lemmas(WordNetUtilities.targetsAsList(w, PointerType.ANTONYM)),
+                        new TreeSet<>(graph.lemmas(graph.related(indexWord, PointerType.ANTONYM))));
+                assertEquals(name, lemmas(WordNetUtilities.targetsAsList(w, PointerType.HYPERNYM)),
+                        new TreeSet<>(graph.lemmas(graph.related(indexWord, PointerType.HYPERNYM))));
+            }
+        }
+
+        // The noun and the verb are separate index words, and proper nouns keep their case.
+        final int noun = graph.indexWordId(POS.NOUN, "Turkey");
+        assertEquals(noun, graph.indexWordId(POS.NOUN, "turkey"));
+        assertTrue(graph.lemmas(graph.synonyms(noun)).contains("Turkey"));
+        assertTrue(graph.lemmas(graph.synonyms(noun)).contains("turkey"));
+        final int verb = graph.indexWordId(POS.VERB, "run");
+        for (final int synset : graph.synsets(verb)) {
+            assertEquals(POS.VERB, graph.pos(synset));
+        }
+    }
+
+    @Test
+    public void testHypernymChain() throws JWNLException {
+        final Dictionary dictionary = Dictionary.getDefaultResourceInstance();
+        final RelationGraph graph = RelationGraph.build(dictionary);
+        final IndexWord dog = dictionary.lookupIndexWord(POS.NOUN, "dog");
+        final int synset = graph.synsetId(POS.NOUN, dog.getSenses().get(0).getOffset());
+        final int[] chain = graph.chain(synset, PointerType.HYPERNYM);
+        assertEquals(synset, chain[0]);
+        assertTrue(graph.lemmas(graph.words(chain[chain.length - 1])).contains("entity"));
+
+        final int indexWord = graph.indexWordId(POS.NOUN, "dog");
+        assertTrue(graph.lemmas(graph.expand(indexWord, PointerType.HYPERNYM, 2)).contains("canine"));
+        assertTrue(graph.lemmas(graph.expand(indexWord, PointerType.HYPERNYM, 2)).contains("carnivore"));
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.enki;
+
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.rules.Rule;
+import org.languagetool.rules.RuleMatch;
+
+// Makes RuleMatches for tests that need matches without running LanguageTool.
+final class TestMatches {
+
+    static final Rule rule = new Rule() {
+
+        @Override
+        public String getId() {
+            return "TEST";
+        }
+
+        @Override
+        public String getDescription() {
+            return "test";
+        }
+
+        @Override
+        public RuleMatch[] match(final AnalyzedSentence sentence) {
+            return new RuleMatch[0];
+        }
+
+    };
+
+    private TestMatches() {
+    }
+
+    static RuleMatch match(final int from, final int to, final String message) {
+        return new RuleMatch(rule, null, from, to, message);
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+public class TextFilesTest {
+
+    private static String read(final Path path, final Charset charset) throws IOException {
+        final StringBuilder b = new StringBuilder();
+        TextFiles.read(path, charset, b::append);
+        return b.toString();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Path directory = Files.createTempDirectory("TextFilesTest");
+        final Path path = directory.resolve("text.txt");
+        // Long enough to span several chunks, with characters that encode to several bytes and surrogate pairs.
+        final String text = "na\u00efve caf\u00e9 \ud83d\ude00 r\u00e9sum\u00e9\r\n".repeat(20000);
+        for (final Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16}) {
+            TextFiles.write(path, text, charset);
+            assertEquals(text, Files.readString(path, charset));
+            assertEquals(text, read(path, charset));
+        }
+
+        try (final var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testUnmappableLeavesTargetAlone() throws IOException {
+        final Path directory = Files.createTempDirectory("TextFilesTest");
+        final Path path = directory.resolve("text.txt");
+        TextFiles.write(path, "plain", StandardCharsets.US_ASCII);
+        try {
+            TextFiles.write(path, "caf\u00e9", StandardCharsets.US_ASCII);
+            throw new AssertionError("expected an exception");
+        } catch (final CharacterCodingException e) {
+            assertEquals("plain", Files.readString(path));
+        }
+
+        try (final var files = Files.list(directory)) {
+            assertFalse(files.anyMatch(x -> x.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void testSaveKeepsPermissions() throws IOException {
+        final Path directory = Files.createTempDirectory("TextFilesTest");
+        final Path path = directory.resolve("text.txt");
+        TextFiles.write(path, "one", StandardCharsets.UTF_8);
+        Assume.assumeNotNull(Files.getFileAttributeView(path, PosixFileAttributeView.class));
+        // A new file is not made private to its owner.
+        assertTrue(Files.getPosixFilePermissions(path).contains(PosixFilePermission.OWNER_READ));
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-xr--");
+        Files.setPosixFilePermissions(path, permissions);
+        TextFiles.write(path, "two", StandardCharsets.UTF_8);
+        assertEquals("two", Files.readString(path));
+        assertEquals(permissions, Files.getPosixFilePermissions(path));
+    }
+
+    @Test
+    public void testSaveThroughSymbolicLink() throws IOException {
+        final Path directory = Files.createTempDirectory("TextFilesTest");
+        final Path real = directory.resolve("real.txt");
+        final Path link = directory.resolve("link.txt");
+        TextFiles.write(real, "one", StandardCharsets.UTF_8);
+        try {
+            Files.createSymbolicLink(link, real.getFileName());
+        } catch (final UnsupportedOperationException | IOException e) {
+            Assume.assumeNoException(e);
+        }
+
+        TextFiles.write(link, "two", StandardCharsets.UTF_8);
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("two", Files.readString(real));
+    }
+
+}
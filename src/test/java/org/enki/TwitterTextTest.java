@@ -0,0 +1,74 @@
+package org.enki;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TwitterTextTest {
+
+    private static boolean isURL(final String s) {
+        return TwitterText.isURL(s, 0, s.length());
+    }
+
+    @Test
+    public void testWeights() {
+        assertEquals(0, TwitterText.weightedLength(""));
+        assertEquals(11, TwitterText.weightedLength("hello world"));
+        assertEquals(1, TwitterText.weightedLength("\u00e9"));
+        // Curly quotes are in a range that counts 1, CJK characters count 2.
+        assertEquals(3, TwitterText.weightedLength("\u201cx\u201d"));
+        assertEquals(6, TwitterText.weightedLength("\u65e5\u672c\u8a9e"));
+    }
+
+    @Test
+    public void testEmoji() {
+        // Thumbs up, and with a skin tone.
+        assertEquals(2, TwitterText.weightedLength("\ud83d\udc4d"));
+        assertEquals(2, TwitterText.weightedLength("\ud83d\udc4d\ud83c\udffd"));
+        // Man, woman and girl joined into a family.
+        assertEquals(2, TwitterText.weightedLength("\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67"));
+        // The flag of the United States, two regional indicators, then a keycap and a heart with a variation selector.
+        assertEquals(2, TwitterText.weightedLength("\ud83c\uddfa\ud83c\uddf8"));
+        assertEquals(2, TwitterText.weightedLength("1\ufe0f\u20e3"));
+        assertEquals(2, TwitterText.weightedLength("\u2764\ufe0f"));
+        assertEquals(6, TwitterText.weightedLength("hi \ud83d\udc4d!"));
+    }
+
+    @Test
+    public void testURLs() {
+        assertTrue(isURL("https://example.com/a"));
+        assertTrue(isURL("HTTP://localhost"));
+        assertTrue(isURL("example.com"));
+        assertTrue(isURL("www.example.org/path?q=1"));
+        assertTrue(isURL("twitter.jp/about"));
+        assertFalse(isURL("twitter.jp"));
+        assertFalse(isURL("http://"));
+        assertFalse(isURL("example"));
+        assertFalse(isURL("example.notatld"));
+        assertFalse(isURL("a@example.com"));
+        assertFalse(isURL("-bad.com"));
+
+        assertEquals(27, TwitterText.weightedLength("see example.com"));
+        assertEquals(25, TwitterText.weightedLength("(example.com)"));
+        assertEquals(24, TwitterText.weightedLength("https://github.com/mcculley/WordWhittler."));
+        assertEquals(14, TwitterText.weightedLength("see twitter.jp"));
+    }
+
+    @Test
+    public void testSumOverRuns() {
+        final String text = "a \ud83d\udc4d example.com \u65e5 https://x.org/y";
+        int sum = 0;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ' ') {
+                sum += TwitterText.weightedLength(text, start, i) + (i < text.length() ? 1 : 0);
+                start = i + 1;
+            }
+        }
+
+        assertEquals(TwitterText.weightedLength(text), sum);
+    }
+
+}